@@ -1,5 +1,7 @@
 package com.citesignal.controller;
 
+import com.citesignal.dto.IncidentCursor;
+import com.citesignal.dto.IncidentCursorPage;
 import com.citesignal.model.Incident;
 import com.citesignal.model.StatutIncident;
 import com.citesignal.security.UserPrincipal;
@@ -28,42 +30,62 @@ public class AgentController {
     public String listIncidents(
             @RequestParam(required = false) String status,
             @AuthenticationPrincipal UserPrincipal userPrincipal,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer page,
             @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean count,
             Model model) {
         
         if (userPrincipal == null) {
             return "redirect:/auth/login";
         }
         
+        // Pagination par curseur par défaut, pages numérotées si "page" est fourni
+        boolean seekMode = page == null;
+        model.addAttribute("seekMode", seekMode);
+        
         try {
-            Pageable pageable = PageRequest.of(page, size);
-            Page<Incident> incidents;
+            StatutIncident statut = null;
             
             // Filtrer selon le statut si fourni
             if (status != null && !status.isEmpty()) {
-                StatutIncident statut = null;
                 try {
                     statut = StatutIncident.valueOf(status.toUpperCase());
                 } catch (IllegalArgumentException e) {
                     // Statut invalide, ignorer
                 }
+            }
+            
+            if (seekMode) {
+                IncidentCursor position = IncidentCursor.decode(cursor);
+                IncidentCursorPage incidents;
+                if (statut != null) {
+                    incidents = incidentService.searchIncidents(
+                            statut, null, null, null, null, null, null, position, size, count);
+                } else {
+                    incidents = incidentService.getIncidentsByAgent(userPrincipal.getId(), position, size, count);
+                }
+                model.addAttribute("incidents", incidents);
+                model.addAttribute("nextCursor", incidents.getNextCursor());
+            } else {
+                Pageable pageable = PageRequest.of(page, size, IncidentCursor.SORT);
+                Page<Incident> incidents;
                 if (statut != null) {
                     incidents = incidentService.searchIncidents(
                             statut, null, null, null, null, null, null, pageable);
                 } else {
                     incidents = incidentService.getIncidentsByAgent(userPrincipal.getId(), pageable);
                 }
-            } else {
-                incidents = incidentService.getIncidentsByAgent(userPrincipal.getId(), pageable);
+                model.addAttribute("incidents", incidents);
             }
             
-            model.addAttribute("incidents", incidents);
             model.addAttribute("statuts", StatutIncident.values());
             model.addAttribute("currentStatus", status);
+            model.addAttribute("currentSize", size);
         } catch (Exception e) {
             model.addAttribute("errorMessage", "Erreur lors du chargement des incidents: " + e.getMessage());
             model.addAttribute("incidents", org.springframework.data.domain.Page.empty());
+            model.addAttribute("seekMode", false);
         }
         
         return "agent/incidents";
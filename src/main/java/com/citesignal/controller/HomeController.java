@@ -1,8 +1,9 @@
 package com.citesignal.controller;
 
+import com.citesignal.dto.IncidentStatusCounts;
 import com.citesignal.model.RoleName;
-import com.citesignal.model.StatutIncident;
 import com.citesignal.model.User;
+import com.citesignal.security.CurrentUser;
 import com.citesignal.security.UserPrincipal;
 import com.citesignal.service.UserService;
 import com.citesignal.service.IncidentService;
@@ -19,7 +20,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.util.Collections;
-import java.util.List;
+import java.util.Map;
 
 @Controller
 public class HomeController {
@@ -36,6 +37,9 @@ public class HomeController {
     @Autowired
     private StatisticsService statisticsService;
     
+    @Autowired
+    private CurrentUser currentUser;
+    
     @GetMapping("/")
     public String home() {
         return "redirect:/dashboard";
@@ -49,7 +53,7 @@ public class HomeController {
         
         try {
             UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-            User user = userService.getUserById(userPrincipal.getId());
+            User user = currentUser.requireUser();
             model.addAttribute("user", user);
             
             // Ajouter les notifications non lues
@@ -79,10 +83,11 @@ public class HomeController {
 
                     // Statistiques utilisateurs pour superadmin
                     if (isSuperAdmin) {
-                        long totalUsers = userService.getAllUsers().size();
-                        long adminCount = userService.getUsersByRole(RoleName.ADMINISTRATEUR).size();
-                        long agentCount = userService.getUsersByRole(RoleName.AGENT_MUNICIPAL).size();
-                        long citizenCount = userService.getUsersByRole(RoleName.CITOYEN).size();
+                        Map<RoleName, Long> usersByRole = userService.countUsersByRole();
+                        long totalUsers = usersByRole.values().stream().mapToLong(Long::longValue).sum();
+                        long adminCount = usersByRole.get(RoleName.ADMINISTRATEUR);
+                        long agentCount = usersByRole.get(RoleName.AGENT_MUNICIPAL);
+                        long citizenCount = usersByRole.get(RoleName.CITOYEN);
 
                         model.addAttribute("totalUsers", totalUsers);
                         model.addAttribute("adminCount", adminCount);
@@ -103,29 +108,17 @@ public class HomeController {
             } else if (isAgent) {
                 // Incidents assignés à l'agent et statistiques
                 try {
-                    List<com.citesignal.model.Incident> agentIncidents = incidentService.getIncidentsByAgent(userPrincipal.getId(), PageRequest.of(0, 1000)).getContent();
-                    model.addAttribute("myIncidents", agentIncidents.subList(0, Math.min(10, agentIncidents.size())));
+                    // 10 derniers incidents, sans requête COUNT
+                    model.addAttribute("myIncidents",
+                            incidentService.getIncidentsByAgent(userPrincipal.getId(), null, 10, false).getContent());
 
-                    // Calculer les statistiques pour l'agent
-                    long pendingIncidents = agentIncidents.stream()
-                            .filter(i -> i.getStatut() == StatutIncident.SIGNALE)
-                            .count();
-                    long inProgressIncidents = agentIncidents.stream()
-                            .filter(i -> i.getStatut() == StatutIncident.PRIS_EN_CHARGE ||
-                                        i.getStatut() == StatutIncident.EN_RESOLUTION)
-                            .count();
-                    long resolvedIncidents = agentIncidents.stream()
-                            .filter(i -> i.getStatut() == StatutIncident.RESOLU ||
-                                        i.getStatut() == StatutIncident.CLOTURE)
-                            .count();
-                    long todayIncidents = agentIncidents.stream()
-                            .filter(i -> i.getCreatedAt().toLocalDate().equals(java.time.LocalDate.now()))
-                            .count();
+                    // Statistiques de l'agent calculées en base
+                    IncidentStatusCounts counts = incidentService.getIncidentCountsForAgent(userPrincipal.getId());
 
-                    model.addAttribute("pendingIncidents", pendingIncidents);
-                    model.addAttribute("inProgressIncidents", inProgressIncidents);
-                    model.addAttribute("resolvedIncidents", resolvedIncidents);
-                    model.addAttribute("todayIncidents", todayIncidents);
+                    model.addAttribute("pendingIncidents", counts.getEnAttente());
+                    model.addAttribute("inProgressIncidents", counts.getEnCours());
+                    model.addAttribute("resolvedIncidents", counts.getResolus());
+                    model.addAttribute("todayIncidents", counts.getCreatedToday());
                 } catch (Exception e) {
                     model.addAttribute("myIncidents", Collections.emptyList());
                     model.addAttribute("pendingIncidents", 0L);
@@ -137,29 +130,17 @@ public class HomeController {
             } else {
                 // Incidents du citoyen
                 try {
-                    List<com.citesignal.model.Incident> allMyIncidents = 
-                            incidentService.getIncidentsByCitoyen(userPrincipal.getId(), 
-                                    PageRequest.of(0, 100)).getContent();
-                    model.addAttribute("myIncidents", allMyIncidents);
+                    // 10 derniers incidents, sans requête COUNT
+                    model.addAttribute("myIncidents",
+                            incidentService.getIncidentsByCitoyen(userPrincipal.getId(), null, 10, false).getContent());
                     
-                    // Calculer les statistiques
-                    long totalIncidents = allMyIncidents.size();
-                    long enAttente = allMyIncidents.stream()
-                            .filter(i -> i.getStatut() == StatutIncident.SIGNALE)
-                            .count();
-                    long enCours = allMyIncidents.stream()
-                            .filter(i -> i.getStatut() == StatutIncident.PRIS_EN_CHARGE ||
-                                        i.getStatut() == StatutIncident.EN_RESOLUTION)
-                            .count();
-                    long resolus = allMyIncidents.stream()
-                            .filter(i -> i.getStatut() == StatutIncident.RESOLU ||
-                                        i.getStatut() == StatutIncident.CLOTURE)
-                            .count();
+                    // Statistiques calculées en base
+                    IncidentStatusCounts counts = incidentService.getIncidentCountsForCitoyen(userPrincipal.getId());
                     
-                    model.addAttribute("totalIncidents", totalIncidents);
-                    model.addAttribute("enAttente", enAttente);
-                    model.addAttribute("enCours", enCours);
-                    model.addAttribute("resolus", resolus);
+                    model.addAttribute("totalIncidents", counts.getTotal());
+                    model.addAttribute("enAttente", counts.getEnAttente());
+                    model.addAttribute("enCours", counts.getEnCours());
+                    model.addAttribute("resolus", counts.getResolus());
                 } catch (Exception e) {
                     model.addAttribute("myIncidents", Collections.emptyList());
                     model.addAttribute("totalIncidents", 0L);
@@ -1,12 +1,15 @@
 package com.citesignal.controller;
 
 import com.citesignal.dto.CreateIncidentRequest;
+import com.citesignal.dto.IncidentCursor;
+import com.citesignal.dto.IncidentCursorPage;
 import com.citesignal.dto.IncidentSearchRequest;
 import com.citesignal.dto.UpdateIncidentRequest;
 import com.citesignal.model.*;
 import com.citesignal.repository.QuartierRepository;
 import com.citesignal.repository.DepartementRepository;
 import com.citesignal.repository.UserRepository;
+import com.citesignal.security.CurrentUser;
 import com.citesignal.security.UserPrincipal;
 import com.citesignal.service.IncidentService;
 import com.citesignal.service.NotificationService;
@@ -53,6 +56,9 @@ public class IncidentController {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private CurrentUser currentUser;
+    
     @GetMapping("/create")
     @PreAuthorize("hasRole('CITOYEN')")
     public String showCreateForm(Model model, Authentication authentication) {
@@ -115,21 +121,24 @@ public class IncidentController {
             
             // Vérifier les permissions
             boolean canEdit = false;
+            boolean hasUnreadNotifications = false;
             if (authentication != null && authentication.isAuthenticated()) {
                 try {
                     UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
                     if (userPrincipal != null) {
-                        User user = userRepository.findById(userPrincipal.getId()).orElse(null);
-                        if (user != null) {
-                            canEdit = ((User) user).hasRole(RoleName.ADMINISTRATEUR) ||
-                                     user.hasRole(RoleName.SUPERADMIN) ||
-                                     (user.hasRole(RoleName.AGENT_MUNICIPAL) && 
-                                      incident.getAgent() != null && 
-                                      incident.getAgent().getId().equals(user.getId())) ||
-                                     (user.hasRole(RoleName.CITOYEN) && 
-                                      incident.getCitoyen() != null &&
-                                      incident.getCitoyen().getId().equals(user.getId()));
-                        }
+                        // Rôles lus depuis le principal, sans recharger l'utilisateur
+                        canEdit = currentUser.hasRole(RoleName.ADMINISTRATEUR) ||
+                                 currentUser.hasRole(RoleName.SUPERADMIN) ||
+                                 (currentUser.hasRole(RoleName.AGENT_MUNICIPAL) && 
+                                  incident.getAgent() != null && 
+                                  incident.getAgent().getId().equals(userPrincipal.getId())) ||
+                                 (currentUser.hasRole(RoleName.CITOYEN) && 
+                                  incident.getCitoyen() != null &&
+                                  incident.getCitoyen().getId().equals(userPrincipal.getId()));
+                        
+                        // Lecture seule : le marquage comme lues passe par un POST explicite
+                        hasUnreadNotifications = notificationService.hasUnreadNotificationsForIncident(
+                                userPrincipal.getId(), incident.getId());
                     }
                 } catch (Exception e) {
                     // Ignorer les erreurs d'authentification
@@ -138,6 +147,7 @@ public class IncidentController {
             
             model.addAttribute("incident", incident);
             model.addAttribute("canEdit", canEdit);
+            model.addAttribute("hasUnreadNotifications", hasUnreadNotifications);
             model.addAttribute("statuts", StatutIncident.values());
             model.addAttribute("priorites", PrioriteIncident.values());
         } catch (RuntimeException e) {
@@ -167,40 +177,71 @@ public class IncidentController {
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateDebut,
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dateFin,
             @RequestParam(required = false) String recherche,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) Integer page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
             @RequestParam(defaultValue = "DESC") String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean count,
             Model model,
             Authentication authentication) {
         
         UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
-        User user = userRepository.findById(userPrincipal.getId()).orElse(null);
+        boolean isCitoyen = currentUser.hasRole(RoleName.CITOYEN);
+        boolean isAgent = currentUser.hasRole(RoleName.AGENT_MUNICIPAL);
         
-        Pageable pageable = PageRequest.of(page, size, 
-                Sort.by(sortDir.equals("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC, sortBy));
+        LocalDateTime dateDebutDateTime = dateDebut != null ? 
+                LocalDateTime.of(dateDebut, LocalTime.MIN) : null;
+        LocalDateTime dateFinDateTime = dateFin != null ? 
+                LocalDateTime.of(dateFin, LocalTime.MAX) : null;
         
-        Page<Incident> incidents;
+        // Pagination par curseur pour le tri par défaut, sauf si une page numérotée est demandée
+        boolean seekMode = cursor != null
+                || (page == null && sortBy.equals("createdAt") && !sortDir.equals("ASC"));
         
-        // Filtrer selon le rôle
-        if (user != null && user.hasRole(RoleName.CITOYEN)) {
-            incidents = incidentService.getIncidentsByCitoyen(user.getId(), pageable);
-        } else if (user != null && user.hasRole(RoleName.AGENT_MUNICIPAL)) {
-            incidents = incidentService.getIncidentsByAgent(user.getId(), pageable);
+        if (seekMode) {
+            IncidentCursor position;
+            try {
+                position = IncidentCursor.decode(cursor);
+            } catch (IllegalArgumentException e) {
+                position = null;
+            }
+            IncidentCursorPage incidents;
+            if (isCitoyen) {
+                incidents = incidentService.getIncidentsByCitoyen(userPrincipal.getId(), position, size, count);
+            } else if (isAgent) {
+                incidents = incidentService.getIncidentsByAgent(userPrincipal.getId(), position, size, count);
+            } else {
+                incidents = incidentService.searchIncidents(
+                        statut, categorie, quartierId, departementId,
+                        dateDebutDateTime, dateFinDateTime, recherche, position, size, count
+                );
+            }
+            model.addAttribute("incidents", incidents);
+            model.addAttribute("nextCursor", incidents.getNextCursor());
         } else {
-            // Recherche avancée pour admins
-            LocalDateTime dateDebutDateTime = dateDebut != null ? 
-                    LocalDateTime.of(dateDebut, LocalTime.MIN) : null;
-            LocalDateTime dateFinDateTime = dateFin != null ? 
-                    LocalDateTime.of(dateFin, LocalTime.MAX) : null;
+            Pageable pageable = PageRequest.of(page != null ? page : 0, size, 
+                    Sort.by(sortDir.equals("ASC") ? Sort.Direction.ASC : Sort.Direction.DESC, sortBy));
+            
+            Page<Incident> incidents;
             
-            incidents = incidentService.searchIncidents(
-                    statut, categorie, quartierId, departementId,
-                    dateDebutDateTime, dateFinDateTime, recherche, pageable
-            );
+            // Filtrer selon le rôle
+            if (isCitoyen) {
+                incidents = incidentService.getIncidentsByCitoyen(userPrincipal.getId(), pageable);
+            } else if (isAgent) {
+                incidents = incidentService.getIncidentsByAgent(userPrincipal.getId(), pageable);
+            } else {
+                // Recherche avancée pour admins
+                incidents = incidentService.searchIncidents(
+                        statut, categorie, quartierId, departementId,
+                        dateDebutDateTime, dateFinDateTime, recherche, pageable
+                );
+            }
+            model.addAttribute("incidents", incidents);
         }
         
-        model.addAttribute("incidents", incidents);
+        model.addAttribute("seekMode", seekMode);
+        model.addAttribute("currentSize", size);
         model.addAttribute("statuts", StatutIncident.values());
         model.addAttribute("categories", CategorieIncident.values());
         try {
@@ -52,6 +52,21 @@ public class NotificationController {
         return "redirect:/notifications";
     }
     
+    // Notifications liées à un incident, marquées lues depuis la page de l'incident
+    @PostMapping("/incident/{incidentId}/read")
+    public String markAsReadForIncident(@PathVariable Long incidentId,
+                                        Authentication authentication,
+                                        RedirectAttributes redirectAttributes) {
+        try {
+            UserPrincipal userPrincipal = (UserPrincipal) authentication.getPrincipal();
+            notificationService.markAsReadForIncident(userPrincipal.getId(), incidentId);
+            redirectAttributes.addFlashAttribute("successMessage", "Notifications de l'incident marquées comme lues");
+        } catch (Exception e) {
+            redirectAttributes.addFlashAttribute("errorMessage", "Erreur: " + e.getMessage());
+        }
+        return "redirect:/incidents/" + incidentId;
+    }
+    
     @PostMapping("/read-all")
     public String markAllAsRead(Authentication authentication,
                                 RedirectAttributes redirectAttributes) {
@@ -2,17 +2,26 @@ package com.citesignal.controller;
 
 import com.citesignal.dto.CreateAgentRequest;
 import com.citesignal.dto.CreateAdminRequest;
+import com.citesignal.dto.IncidentCursor;
+import com.citesignal.dto.IncidentStatusCounts;
+import com.citesignal.dto.RapportJobStatus;
 import com.citesignal.model.*;
+import com.citesignal.security.CurrentUser;
 import com.citesignal.security.UserPrincipal;
 import com.citesignal.service.CsvImportService;
 import com.citesignal.service.UserService;
 import com.citesignal.service.StatisticsService;
 import com.citesignal.service.IncidentService;
+import com.citesignal.service.IncidentSearchIndex;
+import com.citesignal.service.RapportJobService;
 import com.citesignal.service.RapportService;
 import com.citesignal.repository.DepartementRepository;
+import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import java.util.List;
+import java.util.Map;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -28,6 +37,9 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 @RequestMapping("/user")
 public class UserController {
     
+    // Tri des listes d'utilisateurs : inscriptions les plus récentes d'abord
+    private static final Sort USER_SORT = Sort.by(Sort.Direction.DESC, "createdAt").and(Sort.by("id"));
+    
     @Autowired
     private UserService userService;
     
@@ -42,17 +54,26 @@ public class UserController {
     
     @Autowired
     private RapportService rapportService;
+
+    @Autowired
+    private RapportJobService rapportJobService;
+    
+    @Autowired
+    private IncidentSearchIndex incidentSearchIndex;
     
     @Autowired
     private DepartementRepository departementRepository;
     
+    @Autowired
+    private CurrentUser currentUser;
+    
     @GetMapping("/profile")
     public String showProfile(@AuthenticationPrincipal UserPrincipal userPrincipal, Model model) {
         if (userPrincipal == null) {
             return "redirect:/auth/login";
         }
         try {
-            User user = userService.getUserById(userPrincipal.getId());
+            User user = currentUser.requireUser();
             model.addAttribute("user", user);
         } catch (Exception e) {
             model.addAttribute("errorMessage", "Erreur lors du chargement du profil: " + e.getMessage());
@@ -64,49 +85,45 @@ public class UserController {
     public String showHistory(
             @AuthenticationPrincipal UserPrincipal userPrincipal, 
             Model model,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(required = false) Integer page,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor) {
         if (userPrincipal == null) {
             return "redirect:/auth/login";
         }
+        // Pagination par curseur par défaut, pages numérotées si "page" est fourni
+        boolean seekMode = page == null;
+        model.addAttribute("seekMode", seekMode);
         try {
-            User user = userService.getUserById(userPrincipal.getId());
+            User user = currentUser.requireUser();
             model.addAttribute("user", user);
             
-            // Charger tous les incidents du citoyen pour les statistiques
-            List<com.citesignal.model.Incident> allIncidents = 
-                    incidentService.getIncidentsByCitoyen(userPrincipal.getId(), 
-                            PageRequest.of(0, 1000)).getContent();
-            
-            // Calculer les statistiques
-            long total = allIncidents.size();
-            long enAttente = allIncidents.stream()
-                    .filter(i -> i.getStatut() == StatutIncident.SIGNALE)
-                    .count();
-            long enCours = allIncidents.stream()
-                    .filter(i -> i.getStatut() == StatutIncident.PRIS_EN_CHARGE ||
-                                i.getStatut() == StatutIncident.EN_RESOLUTION)
-                    .count();
-            long resolus = allIncidents.stream()
-                    .filter(i -> i.getStatut() == StatutIncident.RESOLU ||
-                                i.getStatut() == StatutIncident.CLOTURE)
-                    .count();
+            // Statistiques calculées en base
+            IncidentStatusCounts counts = incidentService.getIncidentCountsForCitoyen(userPrincipal.getId());
             
             // Charger les incidents paginés pour l'affichage
-            Pageable pageable = PageRequest.of(page, size);
-            var incidentsPage = incidentService.getIncidentsByCitoyen(userPrincipal.getId(), pageable);
-            
-            model.addAttribute("incidents", incidentsPage);
-            model.addAttribute("currentPage", page);
-            model.addAttribute("totalPages", incidentsPage.getTotalPages());
+            if (seekMode) {
+                var incidentsPage = incidentService.getIncidentsByCitoyen(userPrincipal.getId(),
+                        IncidentCursor.decode(cursor), size, false);
+                model.addAttribute("incidents", incidentsPage);
+                model.addAttribute("nextCursor", incidentsPage.getNextCursor());
+            } else {
+                Pageable pageable = PageRequest.of(page, size, IncidentCursor.SORT);
+                var incidentsPage = incidentService.getIncidentsByCitoyen(userPrincipal.getId(), pageable);
+                model.addAttribute("incidents", incidentsPage);
+                model.addAttribute("currentPage", page);
+                model.addAttribute("totalPages", incidentsPage.getTotalPages());
+            }
+            model.addAttribute("currentSize", size);
             model.addAttribute("statuts", StatutIncident.values());
-            model.addAttribute("totalIncidents", total);
-            model.addAttribute("enAttente", enAttente);
-            model.addAttribute("enCours", enCours);
-            model.addAttribute("resolus", resolus);
+            model.addAttribute("totalIncidents", counts.getTotal());
+            model.addAttribute("enAttente", counts.getEnAttente());
+            model.addAttribute("enCours", counts.getEnCours());
+            model.addAttribute("resolus", counts.getResolus());
         } catch (Exception e) {
             model.addAttribute("errorMessage", "Erreur lors du chargement de l'historique: " + e.getMessage());
             model.addAttribute("incidents", org.springframework.data.domain.Page.empty());
+            model.addAttribute("seekMode", false);
             model.addAttribute("totalIncidents", 0L);
             model.addAttribute("enAttente", 0L);
             model.addAttribute("enCours", 0L);
@@ -312,6 +329,7 @@ public class UserController {
     @PostMapping("/admin/statistics/generate-report")
     public String generateReport(
             @RequestParam("format") FormatExport format,
+            @RequestParam(value = "type", defaultValue = "STATISTIQUES_GENERALES") TypeRapport type,
             @RequestParam(value = "dateDebut", required = false) String dateDebutStr,
             @RequestParam(value = "dateFin", required = false) String dateFinStr,
             @AuthenticationPrincipal UserPrincipal userPrincipal,
@@ -334,12 +352,12 @@ public class UserController {
             java.time.LocalDate dateFin = dateFinStr != null && !dateFinStr.isEmpty() ?
                 java.time.LocalDate.parse(dateFinStr) : java.time.LocalDate.now();
 
-            // Générer le rapport
-            Rapport rapport = rapportService.genererRapportStatistiques(user, dateDebut, dateFin, format);
+            // La génération se poursuit en arrière-plan ; la page suit son avancement
+            Long rapportId = rapportJobService.submit(user, type, dateDebut, dateFin, format);
 
             redirectAttributes.addFlashAttribute("successMessage",
-                "Rapport généré avec succès !");
-            redirectAttributes.addFlashAttribute("generatedReportId", rapport.getId());
+                "Génération du rapport lancée.");
+            redirectAttributes.addFlashAttribute("generatedReportId", rapportId);
 
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("errorMessage",
@@ -349,12 +367,38 @@ public class UserController {
         return "redirect:/user/admin/statistics";
     }
 
+    @PreAuthorize("hasRole('ADMINISTRATEUR') or hasRole('SUPERADMIN')")
+    @PostMapping("/admin/search-index/rebuild")
+    public String rebuildSearchIndex(RedirectAttributes redirectAttributes) {
+        if (incidentSearchIndex.requestRebuild()) {
+            redirectAttributes.addFlashAttribute("successMessage",
+                "Reconstruction de l'index de recherche lancée.");
+        } else {
+            redirectAttributes.addFlashAttribute("errorMessage",
+                "L'index de recherche est désactivé ou déjà en cours de reconstruction.");
+        }
+        return "redirect:/user/admin/statistics";
+    }
+
+    @PreAuthorize("hasRole('ADMINISTRATEUR') or hasRole('SUPERADMIN')")
+    @GetMapping("/admin/reports/{id}/status")
+    @ResponseBody
+    public org.springframework.http.ResponseEntity<RapportJobStatus> reportStatus(@PathVariable Long id) {
+        RapportJobStatus status = rapportJobService.getStatus(id);
+        if (status == null) {
+            return org.springframework.http.ResponseEntity.notFound().build();
+        }
+        return org.springframework.http.ResponseEntity.ok()
+                .cacheControl(org.springframework.http.CacheControl.noStore())
+                .body(status);
+    }
+
     @PreAuthorize("hasRole('ADMINISTRATEUR') or hasRole('SUPERADMIN')")
     @GetMapping("/admin/reports/download/{id}")
     public org.springframework.http.ResponseEntity<org.springframework.core.io.Resource> downloadReport(@PathVariable Long id) {
         try {
             Rapport rapport = rapportService.findById(id);
-            if (rapport == null || rapport.getFichierChemin() == null) {
+            if (rapport == null || !rapport.isTermine() || rapport.getFichierChemin() == null) {
                 return org.springframework.http.ResponseEntity.notFound().build();
             }
 
@@ -379,10 +423,14 @@ public class UserController {
     // Liste des agents (accessible aux admins et superadmins)
     @PreAuthorize("hasRole('ADMINISTRATEUR') or hasRole('SUPERADMIN')")
     @GetMapping("/admin/agents")
-    public String listAgents(Model model) {
+    public String listAgents(
+            Model model,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
         try {
-            List<User> agents = userService.getUsersByRole(RoleName.AGENT_MUNICIPAL);
-            model.addAttribute("agents", agents);
+            Page<User> agents = userService.getUsersByRole(RoleName.AGENT_MUNICIPAL, PageRequest.of(page, size, USER_SORT));
+            model.addAttribute("agents", agents.getContent());
+            model.addAttribute("usersPage", agents);
             model.addAttribute("title", "Liste des Agents Municipaux");
         } catch (Exception e) {
             model.addAttribute("errorMessage", "Erreur lors du chargement des agents: " + e.getMessage());
@@ -394,10 +442,14 @@ public class UserController {
     // Liste des citoyens (accessible aux admins et superadmins)
     @PreAuthorize("hasRole('ADMINISTRATEUR') or hasRole('SUPERADMIN')")
     @GetMapping("/admin/citoyens")
-    public String listCitoyens(Model model) {
+    public String listCitoyens(
+            Model model,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
         try {
-            List<User> citoyens = userService.getUsersByRole(RoleName.CITOYEN);
-            model.addAttribute("citoyens", citoyens);
+            Page<User> citoyens = userService.getUsersByRole(RoleName.CITOYEN, PageRequest.of(page, size, USER_SORT));
+            model.addAttribute("citoyens", citoyens.getContent());
+            model.addAttribute("usersPage", citoyens);
             model.addAttribute("title", "Liste des Citoyens");
         } catch (Exception e) {
             model.addAttribute("errorMessage", "Erreur lors du chargement des citoyens: " + e.getMessage());
@@ -424,22 +476,23 @@ public class UserController {
     // Liste de tous les utilisateurs (accessible uniquement aux superadmins)
     @PreAuthorize("hasRole('SUPERADMIN')")
     @GetMapping("/superadmin/users")
-    public String listAllUsers(Model model) {
+    public String listAllUsers(
+            Model model,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "20") int size) {
         try {
-            List<User> allUsers = userService.getAllUsers();
-            model.addAttribute("users", allUsers);
+            Page<User> allUsers = userService.getAllUsers(PageRequest.of(page, size, USER_SORT));
+            model.addAttribute("users", allUsers.getContent());
+            model.addAttribute("usersPage", allUsers);
             model.addAttribute("title", "Liste de tous les Utilisateurs");
 
             // Statistiques pour les cartes
-            long citizenCount = allUsers.stream().filter(u -> u.getRole() == RoleName.CITOYEN).count();
-            long agentCount = allUsers.stream().filter(u -> u.getRole() == RoleName.AGENT_MUNICIPAL).count();
-            long adminCount = allUsers.stream().filter(u -> u.getRole() == RoleName.ADMINISTRATEUR).count();
-            long superadminCount = allUsers.stream().filter(u -> u.getRole() == RoleName.SUPERADMIN).count();
-
-            model.addAttribute("citizenCount", citizenCount);
-            model.addAttribute("agentCount", agentCount);
-            model.addAttribute("adminCount", adminCount);
-            model.addAttribute("superadminCount", superadminCount);
+            Map<RoleName, Long> usersByRole = userService.countUsersByRole();
+
+            model.addAttribute("citizenCount", usersByRole.get(RoleName.CITOYEN));
+            model.addAttribute("agentCount", usersByRole.get(RoleName.AGENT_MUNICIPAL));
+            model.addAttribute("adminCount", usersByRole.get(RoleName.ADMINISTRATEUR));
+            model.addAttribute("superadminCount", usersByRole.get(RoleName.SUPERADMIN));
         } catch (Exception e) {
             model.addAttribute("errorMessage", "Erreur lors du chargement des utilisateurs: " + e.getMessage());
             model.addAttribute("users", java.util.Collections.emptyList());
@@ -0,0 +1,60 @@
+package com.citesignal.dto;
+
+import com.citesignal.model.Incident;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Map;
+
+// Clé de pagination par curseur (createdAt, id) transmise au client sous forme de jeton opaque
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IncidentCursor {
+    
+    // Ordre imposé par la pagination par curseur : du plus récent au plus ancien
+    public static final Sort SORT = Sort.by(Sort.Direction.DESC, "createdAt")
+            .and(Sort.by(Sort.Direction.DESC, "id"));
+    
+    private LocalDateTime createdAt;
+    private Long id;
+    
+    public static IncidentCursor of(Incident incident) {
+        return new IncidentCursor(incident.getCreatedAt(), incident.getId());
+    }
+    
+    public String encode() {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    // Retourne null pour un jeton vide (première page)
+    public static IncidentCursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new IncidentCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1))
+            );
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Curseur de pagination invalide", e);
+        }
+    }
+    
+    public static ScrollPosition toScrollPosition(IncidentCursor cursor) {
+        if (cursor == null) {
+            return ScrollPosition.keyset();
+        }
+        return ScrollPosition.forward(Map.of("createdAt", cursor.getCreatedAt(), "id", cursor.getId()));
+    }
+}
@@ -0,0 +1,25 @@
+package com.citesignal.dto;
+
+import com.citesignal.model.Incident;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class IncidentCursorPage {
+    private List<Incident> content;
+    // Jeton de la page suivante, null sur la dernière page
+    private String nextCursor;
+    // Nombre total d'incidents, null si le comptage n'a pas été demandé
+    private Long totalElements;
+    
+    public boolean isEmpty() {
+        return content.isEmpty();
+    }
+    
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,41 @@
+package com.citesignal.dto;
+
+import com.citesignal.model.CategorieIncident;
+import com.citesignal.model.PrioriteIncident;
+import com.citesignal.model.StatutIncident;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Ligne plate d'incident pour les exports de rapport : aucune entité n'est chargée
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IncidentReportRow {
+    private Long id;
+    private String titre;
+    private String description;
+    private CategorieIncident categorie;
+    private StatutIncident statut;
+    private PrioriteIncident priorite;
+    private String quartierNom;
+    private LocalDateTime createdAt;
+    private Integer noteSatisfaction;
+
+    // Colonnes dans l'ordre de IncidentRepository.findReportRows
+    public static IncidentReportRow from(Object[] row) {
+        return new IncidentReportRow(
+                (Long) row[0],
+                (String) row[1],
+                (String) row[2],
+                (CategorieIncident) row[3],
+                (StatutIncident) row[4],
+                (PrioriteIncident) row[5],
+                (String) row[6],
+                (LocalDateTime) row[7],
+                (Integer) row[8]
+        );
+    }
+}
@@ -0,0 +1,36 @@
+package com.citesignal.dto;
+
+import com.citesignal.model.StatutIncident;
+import lombok.Data;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+// Compteurs d'incidents d'un utilisateur (citoyen ou agent) pour les tableaux de bord
+@Data
+public class IncidentStatusCounts {
+    private Map<StatutIncident, Long> byStatut = new EnumMap<>(StatutIncident.class);
+    private long createdToday;
+
+    public IncidentStatusCounts() {
+        for (StatutIncident statut : StatutIncident.values()) {
+            byStatut.put(statut, 0L);
+        }
+    }
+
+    public long getTotal() {
+        return byStatut.values().stream().mapToLong(Long::longValue).sum();
+    }
+
+    public long getEnAttente() {
+        return byStatut.get(StatutIncident.SIGNALE);
+    }
+
+    public long getEnCours() {
+        return byStatut.get(StatutIncident.PRIS_EN_CHARGE) + byStatut.get(StatutIncident.EN_RESOLUTION);
+    }
+
+    public long getResolus() {
+        return byStatut.get(StatutIncident.RESOLU) + byStatut.get(StatutIncident.CLOTURE);
+    }
+}
@@ -0,0 +1,28 @@
+package com.citesignal.dto;
+
+import com.citesignal.model.Notification;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// Contenu envoyé au navigateur pour une nouvelle notification
+@Data
+public class NotificationPush {
+    private Long id;
+    private String titre;
+    private String message;
+    private Notification.TypeNotification type;
+    private Long incidentId;
+    private LocalDateTime createdAt;
+
+    public static NotificationPush from(Notification notification) {
+        NotificationPush push = new NotificationPush();
+        push.setId(notification.getId());
+        push.setTitre(notification.getTitre());
+        push.setMessage(notification.getMessage());
+        push.setType(notification.getType());
+        push.setIncidentId(notification.getIncident() != null ? notification.getIncident().getId() : null);
+        push.setCreatedAt(notification.getCreatedAt());
+        return push;
+    }
+}
@@ -0,0 +1,42 @@
+package com.citesignal.dto;
+
+import com.citesignal.model.CategorieIncident;
+import com.citesignal.model.StatutIncident;
+import lombok.Data;
+
+import java.time.LocalDate;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Statistiques des incidents créés sur une période, calculées en un seul parcours
+@Data
+public class PeriodStatistics {
+    private LocalDate dateDebut;
+    private LocalDate dateFin;
+    private long total;
+    private Map<StatutIncident, Long> byStatut = new EnumMap<>(StatutIncident.class);
+    private Map<CategorieIncident, Long> byCategorie = new EnumMap<>(CategorieIncident.class);
+    // Triées par nombre d'incidents décroissant
+    private Map<String, Long> byQuartier = new LinkedHashMap<>();
+    private Map<String, Long> byDepartement = new LinkedHashMap<>();
+    private long resolved;
+    // Pourcentage d'incidents résolus ou clôturés
+    private double resolutionRate;
+    // Délais de résolution en heures, null si aucun incident résolu ; centiles à l'heure près
+    private Double meanResolutionHours;
+    private Double medianResolutionHours;
+    private Double p90ResolutionHours;
+    // Null si aucune note n'a été donnée
+    private Double meanSatisfaction;
+    private long satisfactionCount;
+
+    public PeriodStatistics() {
+        for (StatutIncident statut : StatutIncident.values()) {
+            byStatut.put(statut, 0L);
+        }
+        for (CategorieIncident categorie : CategorieIncident.values()) {
+            byCategorie.put(categorie, 0L);
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.citesignal.dto;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Contenu d'un rapport produit par un moteur, rendu ensuite en CSV, PDF, Excel ou texte
+@Data
+public class RapportContent {
+    private String titre;
+    // Indicateurs dans l'ordre d'affichage, null lorsqu'ils ne sont pas calculables
+    private Map<String, Number> indicateurs = new LinkedHashMap<>();
+    private List<RapportTable> tables = new ArrayList<>();
+    // Le détail des incidents de la période est ajouté en flux par les exports
+    private boolean detailIncidents;
+    private long nombreIncidents;
+}
@@ -0,0 +1,17 @@
+package com.citesignal.dto;
+
+import com.citesignal.model.Rapport.StatutGeneration;
+import lombok.Data;
+
+// État d'une génération de rapport renvoyé au client qui suit son avancement
+@Data
+public class RapportJobStatus {
+    private Long id;
+    private StatutGeneration statut;
+    // -1 tant que le nombre d'incidents de la période n'est pas connu
+    private long lignesTotal = -1;
+    private long lignesTraitees;
+    private long octetsEcrits;
+    private String erreur;
+    private String downloadUrl;
+}
@@ -0,0 +1,27 @@
+package com.citesignal.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Tableau d'un rapport, indépendant du format. Les valeurs gardent leur type (Number,
+// LocalDateTime, texte) pour des cellules typées à l'export ; null est affiché "N/A".
+@Data
+@NoArgsConstructor
+public class RapportTable {
+    private String titre;
+    private List<String> colonnes = new ArrayList<>();
+    private List<List<Object>> lignes = new ArrayList<>();
+
+    public RapportTable(String titre, String... colonnes) {
+        this.titre = titre;
+        this.colonnes = Arrays.asList(colonnes);
+    }
+
+    public void ajouterLigne(Object... valeurs) {
+        lignes.add(Arrays.asList(valeurs));
+    }
+}
@@ -0,0 +1,22 @@
+package com.citesignal.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Fichier écrit sur disque par FileStorageService
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredFile {
+    // Chemin relatif au répertoire d'upload (ex: 3f/a2/<uuid>.jpg)
+    private String filename;
+    private String url;
+    // Empreinte SHA-256 du contenu, en hexadécimal
+    private String sha256;
+    private long size;
+    private String contentType;
+    private String originalFilename;
+    // Contenu identique déjà présent sur disque, aucun nouveau fichier écrit
+    private boolean deduplicated;
+}
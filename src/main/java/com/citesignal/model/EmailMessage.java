@@ -0,0 +1,64 @@
+package com.citesignal.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// Email en attente d'envoi (outbox) : enregistré après le commit de l'appelant, puis envoyé
+// par le répartiteur d'emails
+@Entity
+@Table(name = "email_outbox", indexes = {
+        @Index(name = "idx_email_outbox_statut_tentative", columnList = "statut, prochaine_tentative")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class EmailMessage {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "expediteur", length = 255)
+    private String expediteur;
+    
+    @Column(name = "destinataire", nullable = false, length = 255)
+    private String destinataire;
+    
+    @Column(name = "sujet", nullable = false, length = 255)
+    private String sujet;
+    
+    // Chiffré (AES-GCM, Base64) ; vidé une fois l'email envoyé ou abandonné
+    @Column(name = "contenu", nullable = false, length = 10000)
+    private String contenu;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "statut", nullable = false, length = 20)
+    private StatutEnvoi statut = StatutEnvoi.EN_ATTENTE;
+    
+    @Column(name = "tentatives", nullable = false)
+    private Integer tentatives = 0;
+    
+    @Column(name = "prochaine_tentative", nullable = false)
+    private LocalDateTime prochaineTentative;
+    
+    @Column(name = "derniere_erreur", length = 1000)
+    private String derniereErreur;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+    
+    public enum StatutEnvoi {
+        EN_ATTENTE,
+        ENVOYE,
+        ECHEC
+    }
+}
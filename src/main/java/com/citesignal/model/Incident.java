@@ -15,7 +15,16 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
-@Table(name = "incidents")
+// Index composites alignés sur les filtres de recherche, suivis de created_at pour le tri
+@Table(name = "incidents", indexes = {
+        @Index(name = "idx_incidents_statut_created", columnList = "statut, created_at"),
+        @Index(name = "idx_incidents_categorie_created", columnList = "categorie, created_at"),
+        @Index(name = "idx_incidents_quartier_created", columnList = "quartier_id, created_at"),
+        @Index(name = "idx_incidents_departement_created", columnList = "departement_id, created_at"),
+        @Index(name = "idx_incidents_citoyen_created", columnList = "citoyen_id, created_at, id"),
+        @Index(name = "idx_incidents_agent_created", columnList = "agent_id, created_at, id"),
+        @Index(name = "idx_incidents_created", columnList = "created_at, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
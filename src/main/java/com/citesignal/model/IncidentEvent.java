@@ -0,0 +1,75 @@
+package com.citesignal.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+// Événement du cycle de vie d'un incident, écrit dans la transaction qui le produit
+// puis diffusé après commit aux abonnés (notifications, emails...)
+@Entity
+@Table(name = "incident_events", indexes = {
+        @Index(name = "idx_incident_events_statut", columnList = "statut, id")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IncidentEvent {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 30)
+    private TypeEvenement type;
+    
+    @Column(name = "incident_id", nullable = false)
+    private Long incidentId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "ancien_statut", length = 50)
+    private StatutIncident ancienStatut;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "nouveau_statut", length = 50)
+    private StatutIncident nouveauStatut;
+    
+    // Utilisateur concerné (agent assigné), si l'événement en désigne un
+    @Column(name = "user_id")
+    private Long userId;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "statut", nullable = false, length = 20)
+    private StatutTraitement statut = StatutTraitement.EN_ATTENTE;
+    
+    @Column(name = "tentatives", nullable = false)
+    private Integer tentatives = 0;
+    
+    // Date à partir de laquelle un événement en échec est repris ; null : dès que possible
+    @Column(name = "prochaine_tentative")
+    private LocalDateTime prochaineTentative;
+    
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+    
+    public enum TypeEvenement {
+        INCIDENT_CREE,
+        INCIDENT_ASSIGNE,
+        STATUT_MODIFIE,
+        INCIDENT_CLOTURE
+    }
+    
+    public enum StatutTraitement {
+        EN_ATTENTE,
+        TRAITE,
+        ECHEC
+    }
+}
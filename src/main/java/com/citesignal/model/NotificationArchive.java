@@ -0,0 +1,45 @@
+package com.citesignal.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// Notifications lues archivées hors de la table principale. Les références vers l'utilisateur
+// et l'incident sont de simples identifiants, sans contrainte de clé étrangère.
+@Entity
+@Table(name = "notifications_archive", indexes = {
+        @Index(name = "idx_notifications_archive_user_created", columnList = "user_id, created_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NotificationArchive {
+    
+    @Id
+    private Long id;
+    
+    @Column(name = "titre", nullable = false, length = 200)
+    private String titre;
+    
+    @Column(name = "message", nullable = false, length = 1000)
+    private String message;
+    
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false, length = 50)
+    private Notification.TypeNotification type;
+    
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+    
+    @Column(name = "incident_id")
+    private Long incidentId;
+    
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+    
+    @Column(name = "archived_at", nullable = false)
+    private LocalDateTime archivedAt;
+}
@@ -12,7 +12,11 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "photos")
+@Table(name = "photos", indexes = {
+        @Index(name = "idx_photos_chemin", columnList = "chemin"),
+        @Index(name = "idx_photos_chemin_miniature", columnList = "chemin_miniature"),
+        @Index(name = "idx_photos_chemin_moyen", columnList = "chemin_moyen")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -39,6 +43,20 @@ public class Photo {
     @Column(name = "taille")
     private Long taille;
     
+    // Empreinte SHA-256 du contenu ; plusieurs photos peuvent partager le même fichier
+    @Size(max = 64)
+    @Column(name = "empreinte", length = 64)
+    private String empreinte;
+    
+    // Versions réduites générées en arrière-plan ; null tant qu'elles ne sont pas prêtes
+    @Size(max = 500)
+    @Column(name = "chemin_miniature", length = 500)
+    private String cheminMiniature;
+    
+    @Size(max = 500)
+    @Column(name = "chemin_moyen", length = 500)
+    private String cheminMoyen;
+    
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "incident_id", nullable = false)
     @NotNull
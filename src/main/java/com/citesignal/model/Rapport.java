@@ -14,7 +14,9 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "rapports")
+@Table(name = "rapports", indexes = {
+        @Index(name = "idx_rapports_periode", columnList = "type, date_debut, date_fin, format_export")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -56,6 +58,24 @@ public class Rapport {
     @Column(name = "format_export", length = 20)
     private FormatExport formatExport;
     
+    // Génération asynchrone : null pour les rapports produits avant l'introduction des tâches
+    @Enumerated(EnumType.STRING)
+    @Column(name = "statut", length = 20)
+    private StatutGeneration statut;
+    
+    @Column(name = "lignes_traitees")
+    private Long lignesTraitees;
+    
+    @Column(name = "taille_fichier")
+    private Long tailleFichier;
+    
+    @Column(name = "erreur", length = 500)
+    private String erreur;
+    
+    // Version des données au début de la génération, clé du cache des rapports
+    @Column(name = "filigrane", length = 64)
+    private String filigrane;
+    
     @CreationTimestamp
     @Column(name = "created_at", updatable = false)
     private LocalDateTime createdAt;
@@ -63,5 +83,16 @@ public class Rapport {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+    
+    public boolean isTermine() {
+        return statut == null || statut == StatutGeneration.TERMINE;
+    }
+    
+    public enum StatutGeneration {
+        EN_ATTENTE,
+        EN_COURS,
+        TERMINE,
+        ECHEC
+    }
 }
 
@@ -0,0 +1,37 @@
+package com.citesignal.repository;
+
+import com.citesignal.model.EmailMessage;
+import com.citesignal.model.EmailMessage.StatutEnvoi;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailMessageRepository extends JpaRepository<EmailMessage, Long> {
+    
+    // Emails à envoyer maintenant, les plus anciens d'abord
+    @Query("SELECT e FROM EmailMessage e WHERE e.statut = :statut AND e.prochaineTentative <= :maintenant " +
+           "ORDER BY e.prochaineTentative ASC, e.id ASC")
+    List<EmailMessage> findDue(@Param("statut") StatutEnvoi statut,
+                               @Param("maintenant") LocalDateTime maintenant,
+                               Pageable pageable);
+    
+    long countByStatut(StatutEnvoi statut);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM EmailMessage e WHERE e.statut = :statut AND e.sentAt < :avant")
+    int deleteSentBefore(@Param("statut") StatutEnvoi statut, @Param("avant") LocalDateTime avant);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM EmailMessage e WHERE e.statut = :statut AND e.createdAt < :avant")
+    int deleteCreatedBefore(@Param("statut") StatutEnvoi statut, @Param("avant") LocalDateTime avant);
+}
@@ -0,0 +1,32 @@
+package com.citesignal.repository;
+
+import com.citesignal.model.IncidentEvent;
+import com.citesignal.model.IncidentEvent.StatutTraitement;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface IncidentEventRepository extends JpaRepository<IncidentEvent, Long> {
+    
+    // Événements à diffuser : une tentative échouée n'est reprise qu'à sa date de nouvel essai
+    @Query("SELECT e FROM IncidentEvent e WHERE e.statut = :statut " +
+           "AND (e.prochaineTentative IS NULL OR e.prochaineTentative <= :maintenant) ORDER BY e.id ASC")
+    List<IncidentEvent> findDue(@Param("statut") StatutTraitement statut,
+                                @Param("maintenant") LocalDateTime maintenant,
+                                Pageable pageable);
+    
+    long countByStatut(StatutTraitement statut);
+    
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IncidentEvent e WHERE e.statut = :statut AND e.processedAt < :avant")
+    int deleteProcessedBefore(@Param("statut") StatutTraitement statut, @Param("avant") LocalDateTime avant);
+}
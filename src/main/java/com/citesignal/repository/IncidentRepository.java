@@ -4,20 +4,27 @@ import com.citesignal.model.Incident;
 import com.citesignal.model.User;
 import com.citesignal.model.CategorieIncident;
 import com.citesignal.model.StatutIncident;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface IncidentRepository extends JpaRepository<Incident, Long> {
+public interface IncidentRepository extends JpaRepository<Incident, Long>, JpaSpecificationExecutor<Incident> {
     
     @EntityGraph(attributePaths = {"citoyen", "agent", "quartier", "departement"})
     Page<Incident> findByCitoyen(User citoyen, Pageable pageable);
@@ -25,6 +32,13 @@ public interface IncidentRepository extends JpaRepository<Incident, Long> {
     @EntityGraph(attributePaths = {"citoyen", "agent", "quartier", "departement"})
     Page<Incident> findByAgent(User agent, Pageable pageable);
     
+    // Variantes par identifiant : pas de chargement préalable de l'utilisateur
+    @EntityGraph(attributePaths = {"citoyen", "agent", "quartier", "departement"})
+    Page<Incident> findByCitoyenId(Long citoyenId, Pageable pageable);
+    
+    @EntityGraph(attributePaths = {"citoyen", "agent", "quartier", "departement"})
+    Page<Incident> findByAgentId(Long agentId, Pageable pageable);
+    
     @EntityGraph(attributePaths = {"citoyen", "agent", "quartier", "departement", "photos"})
     @Override
     Optional<Incident> findById(Long id);
@@ -41,27 +55,55 @@ public interface IncidentRepository extends JpaRepository<Incident, Long> {
     
     Page<Incident> findByDepartementId(Long departementId, Pageable pageable);
     
+    // Pagination par curseur (createdAt, id) : pas de OFFSET ni de COUNT
+    @EntityGraph(attributePaths = {"citoyen", "agent", "quartier", "departement"})
+    Window<Incident> findByCitoyenId(Long citoyenId, ScrollPosition position, Limit limit, Sort sort);
+    
+    @EntityGraph(attributePaths = {"citoyen", "agent", "quartier", "departement"})
+    Window<Incident> findByAgentId(Long agentId, ScrollPosition position, Limit limit, Sort sort);
+    
+    // Compteurs des tableaux de bord : incidents par statut et créés depuis :debutJour
+    @Query("SELECT i.statut, COUNT(i), SUM(CASE WHEN i.createdAt >= :debutJour THEN 1 ELSE 0 END) " +
+           "FROM Incident i WHERE i.citoyen.id = :citoyenId GROUP BY i.statut")
+    List<Object[]> countByStatutForCitoyen(@Param("citoyenId") Long citoyenId,
+                                           @Param("debutJour") LocalDateTime debutJour);
+    
+    @Query("SELECT i.statut, COUNT(i), SUM(CASE WHEN i.createdAt >= :debutJour THEN 1 ELSE 0 END) " +
+           "FROM Incident i WHERE i.agent.id = :agentId GROUP BY i.statut")
+    List<Object[]> countByStatutForAgent(@Param("agentId") Long agentId,
+                                         @Param("debutJour") LocalDateTime debutJour);
+    
+    long countByCitoyenId(Long citoyenId);
+    
+    long countByAgentId(Long agentId);
+    
+    // Recherche multicritère : voir IncidentSpecifications
+    @Override
+    @EntityGraph(attributePaths = {"citoyen", "agent", "quartier", "departement"})
+    Page<Incident> findAll(Specification<Incident> spec, Pageable pageable);
+    
     @EntityGraph(attributePaths = {"citoyen", "agent", "quartier", "departement"})
-    @Query("SELECT i FROM Incident i WHERE " +
-           "(:statut IS NULL OR i.statut = :statut) AND " +
-           "(:categorie IS NULL OR i.categorie = :categorie) AND " +
-           "(:quartierId IS NULL OR i.quartier.id = :quartierId) AND " +
-           "(:departementId IS NULL OR i.departement.id = :departementId) AND " +
-           "(:dateDebut IS NULL OR i.createdAt >= :dateDebut) AND " +
-           "(:dateFin IS NULL OR i.createdAt <= :dateFin) AND " +
-           "(:recherche IS NULL OR LOWER(i.titre) LIKE LOWER(CONCAT('%', :recherche, '%')) OR " +
-           "LOWER(i.description) LIKE LOWER(CONCAT('%', :recherche, '%')) OR " +
-           "LOWER(i.adresse) LIKE LOWER(CONCAT('%', :recherche, '%')))")
-    Page<Incident> searchIncidents(
-            @Param("statut") StatutIncident statut,
-            @Param("categorie") CategorieIncident categorie,
-            @Param("quartierId") Long quartierId,
-            @Param("departementId") Long departementId,
-            @Param("dateDebut") LocalDateTime dateDebut,
-            @Param("dateFin") LocalDateTime dateFin,
-            @Param("recherche") String recherche,
-            Pageable pageable
-    );
+    List<Incident> findByIdIn(Collection<Long> ids);
+    
+    @EntityGraph(attributePaths = {"citoyen", "agent", "quartier", "departement"})
+    Page<Incident> findByIdIn(Collection<Long> ids, Pageable pageable);
+    
+    // Lignes plates pour l'index de recherche plein texte, parcourues par lots sur la clé
+    // (createdAt, id) : l'ordre de lecture donne directement l'ordre de tri de l'index
+    @Query("SELECT i.id, i.titre, i.description, i.adresse, i.statut, i.categorie, " +
+           "q.id, d.id, i.createdAt FROM Incident i " +
+           "LEFT JOIN i.quartier q LEFT JOIN i.departement d " +
+           "WHERE i.createdAt > :apres OR (i.createdAt = :apres AND i.id > :apresId) " +
+           "ORDER BY i.createdAt, i.id")
+    List<Object[]> findSearchIndexRows(@Param("apres") LocalDateTime apres,
+                                       @Param("apresId") Long apresId,
+                                       Pageable pageable);
+    
+    @Query("SELECT i.id, i.titre, i.description, i.adresse, i.statut, i.categorie, " +
+           "q.id, d.id, i.createdAt FROM Incident i " +
+           "LEFT JOIN i.quartier q LEFT JOIN i.departement d " +
+           "WHERE i.id IN :ids")
+    List<Object[]> findSearchIndexRowsByIdIn(@Param("ids") Collection<Long> ids);
     
     @Query("SELECT COUNT(i) FROM Incident i WHERE i.statut = :statut")
     Long countByStatut(@Param("statut") StatutIncident statut);
@@ -73,9 +115,90 @@ public interface IncidentRepository extends JpaRepository<Incident, Long> {
     List<Incident> findByDateRange(@Param("dateDebut") LocalDateTime dateDebut, 
                                     @Param("dateFin") LocalDateTime dateFin);
     
+    // Agrégat unique (statut, catégorie) : total et nombre d'incidents créés depuis la date donnée
+    @Query("SELECT i.statut, i.categorie, COUNT(i), " +
+           "SUM(CASE WHEN i.createdAt >= :depuis THEN 1 ELSE 0 END) " +
+           "FROM Incident i GROUP BY i.statut, i.categorie")
+    List<Object[]> aggregateByStatutAndCategorie(@Param("depuis") LocalDateTime depuis);
+    
     @Query("SELECT q.nom, COUNT(i) FROM Incident i JOIN i.quartier q GROUP BY q.nom ORDER BY COUNT(i) DESC")
     List<Object[]> countIncidentsByQuartier();
-    List<Incident> findByCreatedAtBetween(LocalDateTime dateDebut, LocalDateTime dateFin);
+    
+    @Query("SELECT d.nom, COUNT(i) FROM Incident i JOIN i.departement d GROUP BY d.nom ORDER BY COUNT(i) DESC")
+    List<Object[]> countIncidentsByDepartement();
+    
+    // Lignes plates des rapports, parcourues par lots sur la clé (createdAt, id) : l'index
+    // idx_incidents_created est lu en avant, sans OFFSET ni entité dans le contexte de persistance
+    @Query("SELECT i.id, i.titre, i.description, i.categorie, i.statut, i.priorite, q.nom, i.createdAt, " +
+           "i.noteSatisfaction " +
+           "FROM Incident i LEFT JOIN i.quartier q " +
+           "WHERE (i.createdAt > :apres OR (i.createdAt = :apres AND i.id > :apresId)) " +
+           "AND i.createdAt <= :dateFin ORDER BY i.createdAt, i.id")
+    List<Object[]> findReportRows(@Param("apres") LocalDateTime apres,
+                                  @Param("apresId") Long apresId,
+                                  @Param("dateFin") LocalDateTime dateFin,
+                                  Pageable pageable);
+    
+    // Colonnes agrégées par StatisticsService.getPeriodStatistics, même parcours par clé que les rapports
+    @Query("SELECT i.id, i.statut, i.categorie, q.nom, d.nom, i.createdAt, i.dateResolution, i.noteSatisfaction, " +
+           "i.priorite " +
+           "FROM Incident i LEFT JOIN i.quartier q LEFT JOIN i.departement d " +
+           "WHERE (i.createdAt > :apres OR (i.createdAt = :apres AND i.id > :apresId)) " +
+           "AND i.createdAt <= :dateFin ORDER BY i.createdAt, i.id")
+    List<Object[]> findPeriodStatisticsRows(@Param("apres") LocalDateTime apres,
+                                            @Param("apresId") Long apresId,
+                                            @Param("dateFin") LocalDateTime dateFin,
+                                            Pageable pageable);
+    
+    // Agrégats d'une période calculés par la base, par dimension : libellé, incidents, résolus,
+    // note moyenne, nombre de notes
+    @Query("SELECT i.categorie, COUNT(i), SUM(CASE WHEN i.statut IN :resolus THEN 1 ELSE 0 END), " +
+           "AVG(i.noteSatisfaction), COUNT(i.noteSatisfaction) FROM Incident i " +
+           "WHERE i.createdAt >= :dateDebut AND i.createdAt <= :dateFin " +
+           "GROUP BY i.categorie ORDER BY COUNT(i) DESC")
+    List<Object[]> aggregatePeriodByCategorie(@Param("dateDebut") LocalDateTime dateDebut,
+                                              @Param("dateFin") LocalDateTime dateFin,
+                                              @Param("resolus") Collection<StatutIncident> resolus);
+    
+    @Query("SELECT q.nom, COUNT(i), SUM(CASE WHEN i.statut IN :resolus THEN 1 ELSE 0 END), " +
+           "AVG(i.noteSatisfaction), COUNT(i.noteSatisfaction) FROM Incident i LEFT JOIN i.quartier q " +
+           "WHERE i.createdAt >= :dateDebut AND i.createdAt <= :dateFin " +
+           "GROUP BY q.id, q.nom ORDER BY COUNT(i) DESC")
+    List<Object[]> aggregatePeriodByQuartier(@Param("dateDebut") LocalDateTime dateDebut,
+                                             @Param("dateFin") LocalDateTime dateFin,
+                                             @Param("resolus") Collection<StatutIncident> resolus);
+    
+    // Par agent assigné, avec en plus le délai moyen de résolution en secondes
+    @Query("SELECT CONCAT(a.prenom, ' ', a.nom), COUNT(i), SUM(CASE WHEN i.statut IN :resolus THEN 1 ELSE 0 END), " +
+           "AVG(i.noteSatisfaction), COUNT(i.noteSatisfaction), " +
+           "AVG((i.dateResolution - i.createdAt) BY SECOND) FROM Incident i JOIN i.agent a " +
+           "WHERE i.createdAt >= :dateDebut AND i.createdAt <= :dateFin " +
+           "GROUP BY a.id, a.prenom, a.nom ORDER BY COUNT(i) DESC")
+    List<Object[]> aggregatePeriodByAgent(@Param("dateDebut") LocalDateTime dateDebut,
+                                          @Param("dateFin") LocalDateTime dateFin,
+                                          @Param("resolus") Collection<StatutIncident> resolus);
+    
+    @Query("SELECT i.noteSatisfaction, COUNT(i) FROM Incident i " +
+           "WHERE i.createdAt >= :dateDebut AND i.createdAt <= :dateFin AND i.noteSatisfaction IS NOT NULL " +
+           "GROUP BY i.noteSatisfaction ORDER BY i.noteSatisfaction")
+    List<Object[]> countPeriodBySatisfaction(@Param("dateDebut") LocalDateTime dateDebut,
+                                             @Param("dateFin") LocalDateTime dateFin);
+    
+    @Query("SELECT COUNT(i) FROM Incident i " +
+           "WHERE i.createdAt >= :dateDebut AND i.createdAt <= :dateFin AND i.noteSatisfaction IS NOT NULL " +
+           "AND i.statut IN :statuts")
+    long countPeriodRatedByStatutIn(@Param("dateDebut") LocalDateTime dateDebut,
+                                    @Param("dateFin") LocalDateTime dateFin,
+                                    @Param("statuts") Collection<StatutIncident> statuts);
+    
+    // Version des données de la période : toute création, modification ou suppression d'un
+    // incident de la période la change, tout comme le renommage d'un quartier, d'un département
+    // ou d'un agent affiché par ses rapports
+    @Query("SELECT MAX(i.updatedAt), COUNT(i), MAX(q.updatedAt), MAX(d.updatedAt), MAX(a.updatedAt) " +
+           "FROM Incident i LEFT JOIN i.quartier q LEFT JOIN i.departement d LEFT JOIN i.agent a " +
+           "WHERE i.createdAt >= :dateDebut AND i.createdAt <= :dateFin")
+    List<Object[]> findDataWatermark(@Param("dateDebut") LocalDateTime dateDebut,
+                                     @Param("dateFin") LocalDateTime dateFin);
 
 }
 
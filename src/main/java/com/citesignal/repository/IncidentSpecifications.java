@@ -0,0 +1,77 @@
+package com.citesignal.repository;
+
+import com.citesignal.model.CategorieIncident;
+import com.citesignal.model.Incident;
+import com.citesignal.model.StatutIncident;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+// Critères de recherche des incidents : seuls les filtres renseignés produisent un prédicat,
+// ce qui permet à la base de choisir l'index adapté à chaque combinaison de filtres
+public final class IncidentSpecifications {
+
+    private IncidentSpecifications() {
+    }
+
+    public static Specification<Incident> search(
+            StatutIncident statut,
+            CategorieIncident categorie,
+            Long quartierId,
+            Long departementId,
+            LocalDateTime dateDebut,
+            LocalDateTime dateFin,
+            String recherche
+    ) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+
+            if (statut != null) {
+                predicates.add(cb.equal(root.get("statut"), statut));
+            }
+            if (categorie != null) {
+                predicates.add(cb.equal(root.get("categorie"), categorie));
+            }
+            // Comparaison sur la clé étrangère, sans jointure
+            if (quartierId != null) {
+                predicates.add(cb.equal(root.get("quartier").get("id"), quartierId));
+            }
+            if (departementId != null) {
+                predicates.add(cb.equal(root.get("departement").get("id"), departementId));
+            }
+            if (dateDebut != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("createdAt"), dateDebut));
+            }
+            if (dateFin != null) {
+                predicates.add(cb.lessThanOrEqualTo(root.get("createdAt"), dateFin));
+            }
+            if (recherche != null && !recherche.isBlank()) {
+                String pattern = "%" + recherche.toLowerCase() + "%";
+                predicates.add(cb.or(
+                        cb.like(cb.lower(root.get("titre")), pattern),
+                        cb.like(cb.lower(root.get("description")), pattern),
+                        cb.like(cb.lower(root.get("adresse")), pattern)
+                ));
+            }
+
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
+
+    // Charge dans la même requête les associations affichées dans les listes
+    public static Specification<Incident> fetchListAssociations() {
+        return (root, query, cb) -> {
+            if (query.getResultType() != Long.class && query.getResultType() != long.class) {
+                root.fetch("citoyen", JoinType.LEFT);
+                root.fetch("agent", JoinType.LEFT);
+                root.fetch("quartier", JoinType.LEFT);
+                root.fetch("departement", JoinType.LEFT);
+            }
+            return null;
+        };
+    }
+}
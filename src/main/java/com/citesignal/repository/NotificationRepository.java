@@ -5,8 +5,12 @@ import com.citesignal.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -15,5 +19,33 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     Page<Notification> findByUser(User user, Pageable pageable);
     List<Notification> findByUserAndLu(User user, Boolean lu);
     Long countByUserAndLu(User user, Boolean lu);
+    long countByUserIdAndLu(Long userId, Boolean lu);
+    Page<Notification> findByUserId(Long userId, Pageable pageable);
+    List<Notification> findByUserIdAndLu(Long userId, Boolean lu);
+    boolean existsByUserIdAndIncidentIdAndLuFalse(Long userId, Long incidentId);
+    
+    // Mises à jour en masse, sans charger les entités
+    @Modifying
+    @Query("UPDATE Notification n SET n.lu = true WHERE n.user.id = :userId AND n.lu = false")
+    int markAllAsReadByUserId(@Param("userId") Long userId);
+    
+    @Modifying
+    @Query("UPDATE Notification n SET n.lu = true " +
+           "WHERE n.user.id = :userId AND n.incident.id = :incidentId AND n.lu = false")
+    int markAsReadByUserIdAndIncidentId(@Param("userId") Long userId, @Param("incidentId") Long incidentId);
+    
+    // Archivage : sélection d'un lot de notifications lues anciennes, copie puis suppression
+    @Query("SELECT n.id FROM Notification n WHERE n.lu = true AND n.createdAt < :avant ORDER BY n.id")
+    List<Long> findReadIdsBefore(@Param("avant") LocalDateTime avant, Pageable pageable);
+    
+    @Modifying
+    @Query("INSERT INTO NotificationArchive (id, titre, message, type, userId, incidentId, createdAt, archivedAt) " +
+           "SELECT n.id, n.titre, n.message, n.type, n.user.id, n.incident.id, n.createdAt, :archivedAt " +
+           "FROM Notification n WHERE n.id IN :ids")
+    int copyToArchive(@Param("ids") List<Long> ids, @Param("archivedAt") LocalDateTime archivedAt);
+    
+    @Modifying
+    @Query("DELETE FROM Notification n WHERE n.id IN :ids")
+    int deleteByIds(@Param("ids") List<Long> ids);
 }
 
@@ -2,14 +2,34 @@ package com.citesignal.repository;
 
 import com.citesignal.model.Photo;
 import com.citesignal.model.Incident;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface PhotoRepository extends JpaRepository<Photo, Long> {
     List<Photo> findByIncident(Incident incident);
     void deleteByIncident(Incident incident);
+    
+    // Fichiers encore référencés (originaux et versions réduites) parmi une liste de chemins sur disque
+    @Query("SELECT p.chemin, p.cheminMiniature, p.cheminMoyen FROM Photo p " +
+           "WHERE p.chemin IN :chemins OR p.cheminMiniature IN :chemins OR p.cheminMoyen IN :chemins")
+    List<Object[]> findReferencedChemins(@Param("chemins") Collection<String> chemins);
+    
+    // Originaux dont les versions réduites restent à générer
+    @Query("SELECT DISTINCT p.chemin FROM Photo p WHERE p.cheminMiniature IS NULL ORDER BY p.chemin")
+    List<String> findCheminsWithoutDerivatives(Pageable pageable);
+    
+    // Toutes les photos partageant le même fichier reçoivent les mêmes versions réduites
+    @Modifying
+    @Query("UPDATE Photo p SET p.cheminMiniature = :miniature, p.cheminMoyen = :moyen WHERE p.chemin = :chemin")
+    int updateDerivatives(@Param("chemin") String chemin, @Param("miniature") String miniature,
+                          @Param("moyen") String moyen);
 }
 
@@ -1,19 +1,52 @@
 package com.citesignal.repository;
 
+import com.citesignal.model.FormatExport;
 import com.citesignal.model.Rapport;
+import com.citesignal.model.Rapport.StatutGeneration;
 import com.citesignal.model.TypeRapport;
 import com.citesignal.model.User;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface RapportRepository extends JpaRepository<Rapport, Long> {
     List<Rapport> findByCreatedBy(User user);
     Page<Rapport> findByCreatedBy(User user, Pageable pageable);
     List<Rapport> findByType(TypeRapport type);
+    
+    // Rapport avec son auteur, utilisé hors transaction par les tâches de génération
+    @Query("SELECT r FROM Rapport r JOIN FETCH r.createdBy WHERE r.id = :id")
+    Optional<Rapport> findWithCreatedByById(@Param("id") Long id);
+    
+    @Query("SELECT r.id FROM Rapport r WHERE r.statut IN :statuts ORDER BY r.id")
+    List<Long> findIdsByStatutIn(@Param("statuts") Collection<StatutGeneration> statuts);
+    
+    // Rapports terminés produits sur la même version des données, du plus récent au plus ancien
+    @Query("SELECT r FROM Rapport r WHERE r.type = :type AND r.dateDebut = :dateDebut " +
+           "AND r.dateFin = :dateFin AND r.formatExport = :format AND r.filigrane = :filigrane " +
+           "AND r.statut = :statut AND r.fichierChemin IS NOT NULL ORDER BY r.id DESC")
+    List<Rapport> findCached(@Param("type") TypeRapport type,
+                             @Param("dateDebut") LocalDate dateDebut,
+                             @Param("dateFin") LocalDate dateFin,
+                             @Param("format") FormatExport format,
+                             @Param("filigrane") String filigrane,
+                             @Param("statut") StatutGeneration statut);
+    
+    @Query("SELECT r.id, r.fichierChemin FROM Rapport r WHERE r.fichierChemin IS NOT NULL " +
+           "AND (r.statut IS NULL OR r.statut = :statut)")
+    List<Object[]> findStoredFiles(@Param("statut") StatutGeneration statut);
+    
+    @Modifying
+    @Query("UPDATE Rapport r SET r.fichierChemin = NULL WHERE r.id IN :ids")
+    int clearFichierChemin(@Param("ids") Collection<Long> ids);
 }
-
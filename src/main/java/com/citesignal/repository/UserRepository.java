@@ -3,7 +3,10 @@ package com.citesignal.repository;
 import com.citesignal.model.Departement;
 import com.citesignal.model.RoleName;
 import com.citesignal.model.User;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -16,6 +19,11 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByVerificationToken(String token);
     Optional<User> findByResetToken(String token);
     List<User> findByRole(RoleName role);
+    Page<User> findByRole(RoleName role, Pageable pageable);
     List<User> findByRoleAndDepartement(RoleName role, Departement departement);
+    
+    // Nombre d'utilisateurs par rôle en une seule requête
+    @Query("SELECT u.role, COUNT(u) FROM User u GROUP BY u.role")
+    List<Object[]> countUsersByRole();
 }
 
@@ -0,0 +1,61 @@
+package com.citesignal.security;
+
+import com.citesignal.model.RoleName;
+import com.citesignal.model.User;
+import com.citesignal.repository.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.annotation.RequestScope;
+
+// Identité de l'utilisateur pour la requête en cours. L'identifiant et les rôles viennent du
+// principal authentifié, sans requête ; l'entité User n'est chargée qu'au premier besoin,
+// une seule fois par requête.
+@Component
+@RequestScope
+public class CurrentUser {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+    private boolean userLoaded;
+
+    public UserPrincipal getPrincipal() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof UserPrincipal principal) {
+            return principal;
+        }
+        return null;
+    }
+
+    public Long getId() {
+        UserPrincipal principal = getPrincipal();
+        return principal != null ? principal.getId() : null;
+    }
+
+    public boolean hasRole(RoleName role) {
+        UserPrincipal principal = getPrincipal();
+        String authority = "ROLE_" + role.name();
+        return principal != null && principal.getAuthorities().stream()
+                .anyMatch(a -> a.getAuthority().equals(authority));
+    }
+
+    public User getUser() {
+        if (!userLoaded) {
+            Long id = getId();
+            user = id != null ? userRepository.findById(id).orElse(null) : null;
+            userLoaded = true;
+        }
+        return user;
+    }
+
+    public User requireUser() {
+        User current = getUser();
+        if (current == null) {
+            throw new RuntimeException("Utilisateur introuvable");
+        }
+        return current;
+    }
+}
@@ -15,6 +15,9 @@ public class CustomUserDetailsService implements UserDetailsService {
     @Autowired
     private UserRepository userRepository;
     
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+    
     @Override
     @Transactional
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
@@ -24,8 +27,12 @@ public class CustomUserDetailsService implements UserDetailsService {
         return UserPrincipal.create(user);
     }
     
-    @Transactional
+    // Servi depuis le cache : aucune requête tant que l'entrée est valide
     public UserDetails loadUserById(Long id) {
+        return userPrincipalCache.get(id, this::loadPrincipalFromDatabase);
+    }
+    
+    private UserPrincipal loadPrincipalFromDatabase(Long id) {
         User user = userRepository.findById(id)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with id: " + id));
         
@@ -7,6 +7,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -15,6 +16,7 @@ import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
@@ -24,6 +26,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     @Autowired
     private CustomUserDetailsService customUserDetailsService;
     
+    @Value("${app.security.jwt.stateless-principal:false}")
+    private boolean statelessPrincipal;
+    
     private static final Logger logger = LoggerFactory.getLogger(JwtAuthenticationFilter.class);
     
     @Override
@@ -35,10 +40,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
             if (path.startsWith("/api/")) {
                 String jwt = getJwtFromRequest(request);
                 
-                if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                    Long userId = tokenProvider.getUserIdFromToken(jwt);
-                    
-                    UserDetails userDetails = customUserDetailsService.loadUserById(userId);
+                Optional<JwtClaims> claims = StringUtils.hasText(jwt) ? tokenProvider.parseToken(jwt) : Optional.empty();
+                
+                if (claims.isPresent()) {
+                    // Mode sans état : le principal est construit à partir du jeton, sans requête
+                    UserDetails userDetails = statelessPrincipal
+                            ? claims.get().toPrincipal()
+                            : customUserDetailsService.loadUserById(claims.get().userId());
                     UsernamePasswordAuthenticationToken authentication = 
                         new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                     authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
@@ -0,0 +1,14 @@
+package com.citesignal.security;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+
+// Informations extraites d'un jeton JWT dont la signature et l'expiration ont été vérifiées
+public record JwtClaims(Long userId, String email, List<GrantedAuthority> authorities) {
+    
+    // Principal reconstruit à partir du jeton seul, sans accès à la base
+    public UserPrincipal toPrincipal() {
+        return new UserPrincipal(userId, email, null, authorities, true, true);
+    }
+}
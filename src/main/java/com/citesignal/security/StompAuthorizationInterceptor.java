@@ -0,0 +1,46 @@
+package com.citesignal.security;
+
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Component;
+
+// Autorisation des trames STOMP entrantes : le handshake authentifié ne suffit pas, le broker
+// simple acceptant sinon tout abonnement ou envoi vers /queue/... (files des autres utilisateurs)
+@Component
+public class StompAuthorizationInterceptor implements ChannelInterceptor {
+
+    // Seules les files personnelles sont ouvertes à l'abonnement : le broker les résout vers la
+    // session de l'utilisateur connecté. Aucun topic partagé n'est publié pour l'instant.
+    private static final String USER_QUEUE_PREFIX = "/user/queue/";
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        StompHeaderAccessor accessor = MessageHeaderAccessor.getAccessor(message, StompHeaderAccessor.class);
+        if (accessor == null || accessor.getCommand() == null) {
+            return message;
+        }
+
+        StompCommand command = accessor.getCommand();
+        if ((command == StompCommand.CONNECT || command == StompCommand.STOMP
+                || command == StompCommand.SUBSCRIBE || command == StompCommand.SEND)
+                && accessor.getUser() == null) {
+            throw new AccessDeniedException("Session WebSocket non authentifiée");
+        }
+
+        if (command == StompCommand.SUBSCRIBE) {
+            String destination = accessor.getDestination();
+            if (destination == null || !destination.startsWith(USER_QUEUE_PREFIX) || destination.contains("..")) {
+                throw new AccessDeniedException("Abonnement non autorisé: " + destination);
+            }
+        } else if (command == StompCommand.SEND) {
+            // Les notifications sont poussées par le serveur : aucun client n'écrit sur le canal
+            throw new AccessDeniedException("Envoi non autorisé: " + accessor.getDestination());
+        }
+        return message;
+    }
+}
@@ -0,0 +1,73 @@
+package com.citesignal.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+// Cache borné des UserPrincipal chargés par identifiant pour l'authentification JWT.
+// Les entrées expirent après la durée configurée et sont invalidées à chaque
+// modification ou suppression de l'utilisateur.
+@Component
+public class UserPrincipalCache {
+    
+    private static final Logger logger = LoggerFactory.getLogger(UserPrincipalCache.class);
+    
+    @Value("${app.security.user-cache.max-size:10000}")
+    private long maxSize;
+    
+    @Value("${app.security.user-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+    
+    private Cache<Long, UserPrincipal> cache;
+    
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+    }
+    
+    public UserPrincipal get(Long userId, Function<Long, UserPrincipal> loader) {
+        return cache.get(userId, loader);
+    }
+    
+    public void invalidate(Long userId) {
+        if (userId != null) {
+            cache.invalidate(userId);
+        }
+    }
+    
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+    
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+    
+    public long size() {
+        return cache.estimatedSize();
+    }
+    
+    @Scheduled(fixedDelayString = "${app.security.user-cache.stats-interval-ms:600000}",
+               initialDelayString = "${app.security.user-cache.stats-interval-ms:600000}")
+    public void logStats() {
+        CacheStats stats = cache.stats();
+        if (stats.requestCount() > 0) {
+            logger.info("Cache utilisateurs JWT: {} entrées, {} hits, {} misses, taux de hit {}%, {} évictions",
+                    cache.estimatedSize(), stats.hitCount(), stats.missCount(),
+                    Math.round(stats.hitRate() * 100), stats.evictionCount());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.citesignal.service;
+
+import com.citesignal.dto.RapportContent;
+import com.citesignal.dto.RapportTable;
+import com.citesignal.model.CategorieIncident;
+import com.citesignal.model.PrioriteIncident;
+import com.citesignal.model.TypeRapport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.Map;
+
+// Délais de résolution (moyenne et centiles) globaux, par catégorie et par priorité. Les
+// centiles ne se calculent pas par GROUP BY : un seul parcours alimente les histogrammes.
+@Component
+public class DelaisResolutionEngine implements RapportEngine {
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Override
+    public TypeRapport getType() {
+        return TypeRapport.DELAIS_RESOLUTION;
+    }
+
+    @Override
+    public RapportContent build(LocalDate dateDebut, LocalDate dateFin) {
+        ResolutionHistogram global = new ResolutionHistogram();
+        Map<CategorieIncident, ResolutionHistogram> parCategorie = new EnumMap<>(CategorieIncident.class);
+        Map<PrioriteIncident, ResolutionHistogram> parPriorite = new EnumMap<>(PrioriteIncident.class);
+        long[] total = {0};
+
+        statisticsService.scanPeriod(dateDebut, dateFin, row -> {
+            LocalDateTime createdAt = (LocalDateTime) row[5];
+            LocalDateTime dateResolution = (LocalDateTime) row[6];
+            total[0]++;
+            global.add(createdAt, dateResolution);
+            if (dateResolution != null) {
+                if (row[2] != null) {
+                    parCategorie.computeIfAbsent((CategorieIncident) row[2], c -> new ResolutionHistogram())
+                            .add(createdAt, dateResolution);
+                }
+                if (row[8] != null) {
+                    parPriorite.computeIfAbsent((PrioriteIncident) row[8], p -> new ResolutionHistogram())
+                            .add(createdAt, dateResolution);
+                }
+            }
+        });
+
+        RapportContent content = new RapportContent();
+        content.setTitre("RAPPORT DES DÉLAIS DE RÉSOLUTION");
+        content.getIndicateurs().put("Incidents de la période", total[0]);
+        content.getIndicateurs().put("Incidents résolus", global.getCount());
+        content.getIndicateurs().put("Délai moyen de résolution (heures)", global.getMeanHours());
+        content.getIndicateurs().put("Délai médian de résolution (heures)", global.getPercentileHours(0.5));
+        content.getIndicateurs().put("Délai de résolution, 90e centile (heures)", global.getPercentileHours(0.9));
+        content.getTables().add(table("DÉLAIS PAR CATÉGORIE", "Catégorie", parCategorie));
+        content.getTables().add(table("DÉLAIS PAR PRIORITÉ", "Priorité", parPriorite));
+        content.setNombreIncidents(total[0]);
+        return content;
+    }
+
+    private static RapportTable table(String titre, String dimension, Map<? extends Enum<?>, ResolutionHistogram> delais) {
+        RapportTable table = new RapportTable(titre, dimension, "Incidents résolus", "Délai moyen (heures)",
+                "Délai médian (heures)", "90e centile (heures)");
+        delais.forEach((valeur, histogram) -> table.ajouterLigne(valeur.name(), histogram.getCount(),
+                histogram.getMeanHours(), histogram.getPercentileHours(0.5), histogram.getPercentileHours(0.9)));
+        return table;
+    }
+}
@@ -0,0 +1,383 @@
+package com.citesignal.service;
+
+import com.citesignal.model.EmailMessage;
+import com.citesignal.model.EmailMessage.StatutEnvoi;
+import com.citesignal.repository.EmailMessageRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// File d'envoi des emails : les messages sont enregistrés en base (outbox) après le commit de
+// l'appelant, puis envoyés par lots par un pool dédié. Chaque lot réutilise une seule connexion
+// SMTP ; les échecs sont retentés avec un délai croissant. Le contenu (mots de passe, liens de
+// vérification) est chiffré en base et effacé dès que l'email est envoyé ou abandonné.
+@Service
+public class EmailOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailOutboxService.class);
+
+    private static final String CHIFFRE_PREFIX = "v1:";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_BITS = 128;
+
+    @Autowired
+    private EmailMessageRepository emailMessageRepository;
+
+    @Autowired
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Clé de chiffrement du contenu ; dérivée du secret JWT si aucune clé dédiée n'est fournie
+    @Value("${app.mail.outbox.encryption-key:${jwt.secret}}")
+    private String encryptionKey;
+
+    @Value("${app.mail.outbox.capacity:10000}")
+    private long capacity;
+
+    @Value("${app.mail.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.mail.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.mail.outbox.retry-delay-seconds:30}")
+    private long retryDelaySeconds;
+
+    @Value("${app.mail.outbox.max-retry-delay-seconds:3600}")
+    private long maxRetryDelaySeconds;
+
+    @Value("${app.mail.outbox.retention-days:7}")
+    private int retentionDays;
+
+    @Value("${app.mail.outbox.failed-retention-days:30}")
+    private int failedRetentionDays;
+
+    @Value("${app.mail.outbox.workers:2}")
+    private int workers;
+
+    private SecretKeySpec contentKey;
+    private final SecureRandom random = new SecureRandom();
+    private TransactionTemplate newTransaction;
+    private ExecutorService dispatcher;
+    private ExecutorService workerPool;
+    private final AtomicBoolean dispatching = new AtomicBoolean(false);
+    private final AtomicBoolean wakeRequested = new AtomicBoolean(false);
+
+    // Métriques
+    private final AtomicLong queueDepth = new AtomicLong();
+    private final AtomicLong sentCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        workers = Math.max(1, workers);
+        try {
+            contentKey = new SecretKeySpec(MessageDigest.getInstance("SHA-256")
+                    .digest(encryptionKey.getBytes(StandardCharsets.UTF_8)), "AES");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Chiffrement des emails indisponible", e);
+        }
+        newTransaction = new TransactionTemplate(transactionManager);
+        newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        dispatcher = Executors.newSingleThreadExecutor(namedThreads("email-dispatcher"));
+        workerPool = Executors.newFixedThreadPool(workers, namedThreads("email-sender"));
+    }
+
+    // Enregistre le message après le commit de la transaction courante, dans sa propre
+    // transaction : un échec d'écriture n'annule pas la transaction de l'appelant, et un
+    // rollback de celle-ci n'envoie pas d'email (identifiants d'un compte non créé)
+    public boolean enqueue(SimpleMailMessage message) {
+        if (queueDepth.get() >= capacity) {
+            rejectedCount.incrementAndGet();
+            logger.warn("File d'emails pleine ({} en attente), message ignoré pour: {}",
+                    queueDepth.get(), String.join(",", message.getTo()));
+            return false;
+        }
+
+        EmailMessage email = new EmailMessage();
+        email.setExpediteur(message.getFrom());
+        email.setDestinataire(String.join(",", message.getTo()));
+        email.setSujet(message.getSubject());
+        email.setContenu(chiffrer(message.getText()));
+        email.setProchaineTentative(LocalDateTime.now());
+        queueDepth.incrementAndGet();
+
+        TransactionCallbacks.afterCommit(() -> store(email));
+        return true;
+    }
+
+    private void store(EmailMessage email) {
+        try {
+            newTransaction.executeWithoutResult(status -> emailMessageRepository.save(email));
+            wake();
+        } catch (Exception e) {
+            queueDepth.decrementAndGet();
+            logger.error("Impossible d'enregistrer l'email pour: {}", email.getDestinataire(), e);
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        queueDepth.set(emailMessageRepository.countByStatut(StatutEnvoi.EN_ATTENTE));
+        wake();
+    }
+
+    // Reprise périodique : nouvelles tentatives et messages laissés par un redémarrage
+    @Scheduled(fixedDelayString = "${app.mail.outbox.poll-interval-ms:10000}")
+    public void poll() {
+        wake();
+    }
+
+    private void wake() {
+        wakeRequested.set(true);
+        if (!dispatcher.isShutdown() && dispatching.compareAndSet(false, true)) {
+            dispatcher.submit(this::dispatch);
+        }
+    }
+
+    private void dispatch() {
+        try {
+            // Les réveils reçus pendant un envoi relancent un tour complet
+            while (wakeRequested.getAndSet(false)) {
+                dispatchDue();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("Erreur lors de l'envoi des emails en attente", e);
+        } finally {
+            try {
+                queueDepth.set(emailMessageRepository.countByStatut(StatutEnvoi.EN_ATTENTE));
+            } catch (Exception e) {
+                logger.warn("Impossible de mesurer la file d'emails: {}", e.getMessage());
+            }
+            dispatching.set(false);
+            if (wakeRequested.get() && !Thread.currentThread().isInterrupted()) {
+                wake();
+            }
+        }
+    }
+
+    private void dispatchDue() throws Exception {
+        List<EmailMessage> due;
+        do {
+            due = emailMessageRepository.findDue(StatutEnvoi.EN_ATTENTE, LocalDateTime.now(),
+                    PageRequest.of(0, batchSize * workers));
+            if (due.isEmpty()) {
+                return;
+            }
+
+            // Un lot par worker, chacun envoyé sur sa propre connexion SMTP
+            List<Future<?>> futures = new ArrayList<>();
+            for (int from = 0; from < due.size(); from += batchSize) {
+                List<EmailMessage> batch = due.subList(from, Math.min(from + batchSize, due.size()));
+                futures.add(workerPool.submit(() -> sendBatch(batch)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } while (due.size() == batchSize * workers);
+    }
+
+    private void sendBatch(List<EmailMessage> batch) {
+        Map<SimpleMailMessage, EmailMessage> byMessage = new IdentityHashMap<>();
+        for (EmailMessage email : batch) {
+            try {
+                byMessage.put(toMailMessage(email), email);
+            } catch (GeneralSecurityException | IllegalArgumentException e) {
+                // Clé changée ou contenu altéré : aucun nouvel essai ne pourra aboutir
+                email.setTentatives(maxAttempts - 1);
+                recordFailure(email, e, LocalDateTime.now());
+            }
+        }
+        if (byMessage.isEmpty()) {
+            emailMessageRepository.saveAll(batch);
+            return;
+        }
+
+        Map<Object, Exception> failures = Map.of();
+        try {
+            mailSender.send(byMessage.keySet().toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages();
+            if (failures.isEmpty()) {
+                failures = allFailed(byMessage, e);
+            }
+        } catch (MailException e) {
+            failures = allFailed(byMessage, e);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        for (Map.Entry<SimpleMailMessage, EmailMessage> entry : byMessage.entrySet()) {
+            EmailMessage email = entry.getValue();
+            Exception failure = failures.get(entry.getKey());
+            if (failure == null) {
+                email.setStatut(StatutEnvoi.ENVOYE);
+                email.setSentAt(now);
+                email.setContenu("");
+                email.setDerniereErreur(null);
+                sentCount.incrementAndGet();
+            } else {
+                recordFailure(email, failure, now);
+            }
+        }
+        emailMessageRepository.saveAll(batch);
+    }
+
+    private void recordFailure(EmailMessage email, Exception failure, LocalDateTime now) {
+        int attempts = email.getTentatives() + 1;
+        email.setTentatives(attempts);
+        String error = failure.getMessage() != null ? failure.getMessage() : failure.getClass().getSimpleName();
+        email.setDerniereErreur(error.length() > 1000 ? error.substring(0, 1000) : error);
+
+        if (attempts >= maxAttempts) {
+            email.setStatut(StatutEnvoi.ECHEC);
+            email.setContenu("");
+            failedCount.incrementAndGet();
+            logger.error("Abandon de l'envoi de l'email {} à {} après {} tentatives: {}",
+                    email.getId(), email.getDestinataire(), attempts, error);
+        } else {
+            // Délai exponentiel : retry-delay, x2, x4... plafonné
+            long delay = Math.min(retryDelaySeconds << Math.min(attempts - 1, 20), maxRetryDelaySeconds);
+            email.setProchaineTentative(now.plusSeconds(delay));
+            retryCount.incrementAndGet();
+            logger.warn("Echec d'envoi de l'email {} à {} (tentative {}), nouvel essai dans {} s: {}",
+                    email.getId(), email.getDestinataire(), attempts, delay, error);
+        }
+    }
+
+    private Map<Object, Exception> allFailed(Map<SimpleMailMessage, EmailMessage> byMessage, Exception e) {
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        byMessage.keySet().forEach(message -> failures.put(message, e));
+        return failures;
+    }
+
+    private SimpleMailMessage toMailMessage(EmailMessage email) throws GeneralSecurityException {
+        SimpleMailMessage message = new SimpleMailMessage();
+        message.setFrom(email.getExpediteur());
+        message.setTo(email.getDestinataire().split(","));
+        message.setSubject(email.getSujet());
+        message.setText(dechiffrer(email.getContenu()));
+        return message;
+    }
+
+    // AES-GCM, IV aléatoire préfixé au texte chiffré, le tout en Base64
+    private String chiffrer(String contenu) {
+        try {
+            byte[] iv = new byte[IV_LENGTH];
+            random.nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, contentKey, new GCMParameterSpec(TAG_BITS, iv));
+            byte[] chiffre = cipher.doFinal(contenu.getBytes(StandardCharsets.UTF_8));
+            return CHIFFRE_PREFIX + Base64.getEncoder().encodeToString(
+                    ByteBuffer.allocate(iv.length + chiffre.length).put(iv).put(chiffre).array());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Chiffrement du contenu de l'email impossible", e);
+        }
+    }
+
+    private String dechiffrer(String contenu) throws GeneralSecurityException {
+        if (contenu == null || contenu.isEmpty()) {
+            throw new IllegalArgumentException("Contenu de l'email absent");
+        }
+        if (!contenu.startsWith(CHIFFRE_PREFIX)) {
+            // Message enregistré avant le chiffrement du contenu
+            return contenu;
+        }
+        byte[] donnees = Base64.getDecoder().decode(contenu.substring(CHIFFRE_PREFIX.length()));
+        Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+        cipher.init(Cipher.DECRYPT_MODE, contentKey, new GCMParameterSpec(TAG_BITS, donnees, 0, IV_LENGTH));
+        return new String(cipher.doFinal(donnees, IV_LENGTH, donnees.length - IV_LENGTH), StandardCharsets.UTF_8);
+    }
+
+    // Purge des emails envoyés, puis des emails abandonnés, au-delà de leur durée de rétention
+    @Scheduled(fixedDelayString = "${app.mail.outbox.cleanup-interval-ms:3600000}")
+    public void purgeSent() {
+        int deleted = emailMessageRepository.deleteSentBefore(StatutEnvoi.ENVOYE,
+                LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            logger.info("{} emails envoyés purgés de la file", deleted);
+        }
+        int failed = emailMessageRepository.deleteCreatedBefore(StatutEnvoi.ECHEC,
+                LocalDateTime.now().minusDays(failedRetentionDays));
+        if (failed > 0) {
+            logger.info("{} emails en échec purgés de la file", failed);
+        }
+    }
+
+    public long getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    public long getSentCount() {
+        return sentCount.get();
+    }
+
+    public long getRetryCount() {
+        return retryCount.get();
+    }
+
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    private static ThreadFactory namedThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        dispatcher.shutdownNow();
+        workerPool.shutdownNow();
+    }
+}
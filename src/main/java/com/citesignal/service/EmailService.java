@@ -5,7 +5,6 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 @Service
@@ -13,8 +12,9 @@ public class EmailService {
     
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
     
+    // Les emails passent par la file d'envoi : aucun appel SMTP dans le thread de l'appelant
     @Autowired
-    private JavaMailSender mailSender;
+    private EmailOutboxService emailOutbox;
     
     @Value("${app.url}")
     private String appUrl;
@@ -36,10 +36,10 @@ public class EmailService {
                     "Cordialement,\n" +
                     "L'équipe CiteSignal");
             
-            mailSender.send(message);
-            logger.info("Verification email sent to: {}", to);
+            emailOutbox.enqueue(message);
+            logger.info("Verification email queued for: {}", to);
         } catch (Exception e) {
-            logger.error("Error sending verification email to: {}", to, e);
+            logger.error("Error queueing verification email to: {}", to, e);
         }
     }
     
@@ -58,10 +58,10 @@ public class EmailService {
                     "Cordialement,\n" +
                     "L'équipe CiteSignal");
             
-            mailSender.send(message);
-            logger.info("Password reset email sent to: {}", to);
+            emailOutbox.enqueue(message);
+            logger.info("Password reset email queued for: {}", to);
         } catch (Exception e) {
-            logger.error("Error sending password reset email to: {}", to, e);
+            logger.error("Error queueing password reset email to: {}", to, e);
         }
     }
     
@@ -78,10 +78,10 @@ public class EmailService {
                     "Cordialement,\n" +
                     "L'équipe CiteSignal");
             
-            mailSender.send(message);
-            logger.info("Incident update email sent to: {}", to);
+            emailOutbox.enqueue(message);
+            logger.info("Incident update email queued for: {}", to);
         } catch (Exception e) {
-            logger.error("Error sending incident update email to: {}", to, e);
+            logger.error("Error queueing incident update email to: {}", to, e);
         }
     }
     
@@ -102,10 +102,10 @@ public class EmailService {
                     "Cordialement,\n" +
                     "L'équipe CiteSignal");
             
-            mailSender.send(message);
-            logger.info("Agent credentials email sent to: {}", to);
+            emailOutbox.enqueue(message);
+            logger.info("Agent credentials email queued for: {}", to);
         } catch (Exception e) {
-            logger.error("Error sending agent credentials email to: {}", to, e);
+            logger.error("Error queueing agent credentials email to: {}", to, e);
         }
     }
     
@@ -125,10 +125,10 @@ public class EmailService {
                     "Cordialement,\n" +
                     "L'équipe CiteSignal");
             
-            mailSender.send(message);
-            logger.info("Agent assignment email sent to: {}", to);
+            emailOutbox.enqueue(message);
+            logger.info("Agent assignment email queued for: {}", to);
         } catch (Exception e) {
-            logger.error("Error sending agent assignment email to: {}", to, e);
+            logger.error("Error queueing agent assignment email to: {}", to, e);
         }
     }
     
@@ -149,10 +149,10 @@ public class EmailService {
                     "Cordialement,\n" +
                     "L'équipe CiteSignal");
             
-            mailSender.send(message);
-            logger.info("Admin credentials email sent to: {}", to);
+            emailOutbox.enqueue(message);
+            logger.info("Admin credentials email queued for: {}", to);
         } catch (Exception e) {
-            logger.error("Error sending admin credentials email to: {}", to, e);
+            logger.error("Error queueing admin credentials email to: {}", to, e);
         }
     }
 }
@@ -1,5 +1,8 @@
 package com.citesignal.service;
 
+import com.citesignal.dto.StoredFile;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -7,14 +10,40 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
+// Stockage des photos : le contenu est écrit en flux du multipart vers le disque (FileChannel),
+// l'empreinte SHA-256 étant calculée pendant la copie. Les fichiers sont répartis dans des
+// sous-répertoires dérivés de l'empreinte (ab/cd/...) pour garder des répertoires de taille raisonnable.
+// En mode adressé par contenu, le fichier est nommé d'après son empreinte : une photo déjà
+// stockée n'est pas réécrite, et les fichiers qui ne sont plus référencés par aucune photo sont
+// supprimés par OrphanFileCollector.
 @Service
 public class FileStorageService {
     
@@ -23,12 +52,44 @@ public class FileStorageService {
     @Value("${app.upload.dir:uploads}")
     private String uploadDir;
     
+    @Value("${app.upload.parallelism:4}")
+    private int parallelism;
+    
+    @Value("${app.upload.content-addressed:true}")
+    private boolean contentAddressed;
+    
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB
+    private static final long TRANSFER_CHUNK = 256 * 1024;
     private static final List<String> ALLOWED_CONTENT_TYPES = List.of(
             "image/jpeg", "image/jpg", "image/png", "image/gif", "image/webp"
     );
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/jpeg", ".jpg", "image/jpg", ".jpg", "image/png", ".png",
+            "image/gif", ".gif", "image/webp", ".webp"
+    );
+    private static final Pattern SAFE_EXTENSION = Pattern.compile("\\.[A-Za-z0-9]{1,10}");
+    
+    private Path rootPath;
+    private Path tempPath;
+    // Répertoires de shard déjà créés : évite un appel système par fichier
+    private final Set<Path> knownDirectories = ConcurrentHashMap.newKeySet();
+    private ExecutorService uploadPool;
+    
+    @PostConstruct
+    public void init() throws IOException {
+        rootPath = Paths.get(uploadDir).toAbsolutePath().normalize();
+        tempPath = rootPath.resolve(".tmp");
+        Files.createDirectories(tempPath);
+        
+        AtomicInteger counter = new AtomicInteger();
+        uploadPool = Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "photo-upload-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
     
-    public String storeFile(MultipartFile file) throws IOException {
+    public StoredFile storeFile(MultipartFile file) throws IOException {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("Le fichier est vide");
         }
@@ -44,47 +105,99 @@ public class FileStorageService {
             throw new IllegalArgumentException("Type de fichier non autorisé. Seuls les images sont acceptées.");
         }
         
-        // Créer le répertoire s'il n'existe pas
-        Path uploadPath = Paths.get(uploadDir);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-        
-        // Générer un nom de fichier unique
-        String originalFilename = file.getOriginalFilename();
-        String extension = "";
-        if (originalFilename != null && originalFilename.contains(".")) {
-            extension = originalFilename.substring(originalFilename.lastIndexOf("."));
+        // Copie en flux vers un fichier temporaire, empreinte calculée au passage
+        MessageDigest digest = newDigest();
+        Path tempFile = Files.createTempFile(tempPath, "upload-", ".part");
+        long size = 0;
+        try {
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest);
+                 ReadableByteChannel source = Channels.newChannel(in);
+                 FileChannel target = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                long transferred;
+                while ((transferred = target.transferFrom(source, size, TRANSFER_CHUNK)) > 0) {
+                    size += transferred;
+                    if (size > MAX_FILE_SIZE) {
+                        throw new IllegalArgumentException("Le fichier est trop volumineux (max 10MB)");
+                    }
+                }
+            }
+            
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            String filename = contentAddressed
+                    ? shardOf(sha256) + "/" + sha256 + EXTENSIONS.get(contentType)
+                    : shardOf(sha256) + "/" + UUID.randomUUID() + extensionOf(file);
+            Path filePath = rootPath.resolve(filename);
+            ensureDirectory(filePath.getParent());
+            
+            boolean deduplicated = false;
+            if (contentAddressed && Files.exists(filePath)) {
+                // Contenu déjà stocké : la date rafraîchie protège le fichier du ramasse-miettes
+                // le temps que la nouvelle photo soit enregistrée
+                Files.setLastModifiedTime(filePath, FileTime.from(Instant.now()));
+                deduplicated = true;
+                logger.info("Fichier déjà présent, réutilisé: {}", filePath);
+            } else {
+                Files.move(tempFile, filePath, StandardCopyOption.ATOMIC_MOVE);
+                logger.info("Fichier sauvegardé: {} ({} octets)", filePath, size);
+            }
+            return new StoredFile(filename, getFileUrl(filename), sha256, size, contentType,
+                    file.getOriginalFilename(), deduplicated);
+        } finally {
+            Files.deleteIfExists(tempFile);
         }
-        String uniqueFilename = UUID.randomUUID().toString() + extension;
-        
-        // Sauvegarder le fichier
-        Path filePath = uploadPath.resolve(uniqueFilename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-        
-        logger.info("Fichier sauvegardé: {}", filePath);
-        return uniqueFilename;
     }
     
-    public List<String> storeFiles(List<MultipartFile> files) throws IOException {
-        List<String> storedFilenames = new ArrayList<>();
+    // Écrit les fichiers en parallèle ; un fichier refusé ou en erreur est ignoré et journalisé
+    public List<StoredFile> storeFiles(List<MultipartFile> files) {
+        List<StoredFile> storedFiles = new ArrayList<>();
+        if (files == null || files.isEmpty()) {
+            return storedFiles;
+        }
+        
+        List<Future<StoredFile>> futures = new ArrayList<>();
         for (MultipartFile file : files) {
             if (file != null && !file.isEmpty()) {
-                storedFilenames.add(storeFile(file));
+                futures.add(uploadPool.submit(() -> storeFile(file)));
             }
         }
-        return storedFilenames;
+        for (Future<StoredFile> future : futures) {
+            try {
+                storedFiles.add(future.get());
+            } catch (ExecutionException e) {
+                logger.error("Erreur lors de l'upload de la photo", e.getCause());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                deleteStoredFiles(storedFiles);
+                throw new RuntimeException("Upload des photos interrompu", e);
+            }
+        }
+        return storedFiles;
+    }
+    
+    // Annule des écritures dont les photos n'ont pas été enregistrées. Un fichier adressé par
+    // contenu peut être partagé : il est laissé au ramasse-miettes, qui vérifie les références.
+    public void deleteStoredFiles(List<StoredFile> storedFiles) {
+        if (contentAddressed) {
+            return;
+        }
+        for (StoredFile storedFile : storedFiles) {
+            deleteFile(storedFile.getFilename());
+        }
     }
     
     public Path loadFile(String filename) {
-        return Paths.get(uploadDir).resolve(filename).normalize();
+        Path filePath = rootPath.resolve(filename).normalize();
+        if (!filePath.startsWith(rootPath)) {
+            throw new IllegalArgumentException("Chemin de fichier invalide");
+        }
+        return filePath;
     }
     
     public boolean deleteFile(String filename) {
         try {
             Path filePath = loadFile(filename);
             return Files.deleteIfExists(filePath);
-        } catch (IOException e) {
+        } catch (IOException | IllegalArgumentException e) {
             logger.error("Erreur lors de la suppression du fichier: {}", filename, e);
             return false;
         }
@@ -94,8 +207,66 @@ public class FileStorageService {
         return uploadDir;
     }
     
+    public Path getRootPath() {
+        return rootPath;
+    }
+    
+    public Path getTempPath() {
+        return tempPath;
+    }
+    
     public String getFileUrl(String filename) {
         return "/uploads/" + filename;
     }
+    
+    // Chemin relatif au répertoire d'upload à partir de l'URL enregistrée sur Photo
+    public String getFilename(String url) {
+        return url.startsWith("/uploads/") ? url.substring("/uploads/".length()) : url;
+    }
+    
+    // Fichier dérivé (miniature...) écrit dans un temporaire puis mis en place atomiquement
+    public Path createTempFile() throws IOException {
+        return Files.createTempFile(tempPath, "derive-", ".part");
+    }
+    
+    public void moveIntoPlace(Path tempFile, String filename) throws IOException {
+        Path filePath = loadFile(filename);
+        ensureDirectory(filePath.getParent());
+        Files.move(tempFile, filePath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    private void ensureDirectory(Path directory) throws IOException {
+        if (!knownDirectories.contains(directory)) {
+            Files.createDirectories(directory);
+            knownDirectories.add(directory);
+        }
+    }
+    
+    private static String shardOf(String sha256) {
+        return sha256.substring(0, 2) + "/" + sha256.substring(2, 4);
+    }
+    
+    private static String extensionOf(MultipartFile file) {
+        String originalFilename = file.getOriginalFilename();
+        if (originalFilename != null && originalFilename.contains(".")) {
+            String extension = originalFilename.substring(originalFilename.lastIndexOf("."));
+            if (SAFE_EXTENSION.matcher(extension).matches()) {
+                return extension.toLowerCase();
+            }
+        }
+        return EXTENSIONS.getOrDefault(file.getContentType(), "");
+    }
+    
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        uploadPool.shutdownNow();
+    }
 }
-
@@ -0,0 +1,179 @@
+package com.citesignal.service;
+
+import com.citesignal.model.Incident;
+import com.citesignal.model.IncidentEvent;
+import com.citesignal.model.IncidentEvent.StatutTraitement;
+import com.citesignal.model.IncidentEvent.TypeEvenement;
+import com.citesignal.model.StatutIncident;
+import com.citesignal.repository.IncidentEventRepository;
+import com.citesignal.repository.IncidentRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Outbox des événements d'incident : publish() écrit une ligne compacte dans la transaction
+// métier, le relais la diffuse après commit aux abonnés, chaque événement dans sa propre
+// transaction. Les événements non traités (redémarrage, erreur) sont repris périodiquement.
+@Service
+public class IncidentEventOutbox {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncidentEventOutbox.class);
+
+    @Autowired
+    private IncidentEventRepository incidentEventRepository;
+
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    @Autowired
+    private List<IncidentEventSubscriber> subscribers;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.events.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.events.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${app.events.retry-delay-seconds:30}")
+    private long retryDelaySeconds;
+
+    @Value("${app.events.max-retry-delay-seconds:3600}")
+    private long maxRetryDelaySeconds;
+
+    @Value("${app.events.retention-days:7}")
+    private int retentionDays;
+
+    private TransactionTemplate transactionTemplate;
+    private final ExecutorService relay = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "incident-event-relay");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean relaying = new AtomicBoolean(false);
+    private final AtomicBoolean wakeRequested = new AtomicBoolean(false);
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public void publish(TypeEvenement type, Incident incident) {
+        publish(type, incident, null, null, null);
+    }
+
+    public void publish(TypeEvenement type, Incident incident, StatutIncident ancienStatut,
+                        StatutIncident nouveauStatut, Long userId) {
+        IncidentEvent event = new IncidentEvent();
+        event.setType(type);
+        event.setIncidentId(incident.getId());
+        event.setAncienStatut(ancienStatut);
+        event.setNouveauStatut(nouveauStatut);
+        event.setUserId(userId);
+        incidentEventRepository.save(event);
+
+        TransactionCallbacks.afterCommit(this::wake);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        wake();
+    }
+
+    @Scheduled(fixedDelayString = "${app.events.poll-interval-ms:15000}")
+    public void poll() {
+        wake();
+    }
+
+    private void wake() {
+        wakeRequested.set(true);
+        if (!relay.isShutdown() && relaying.compareAndSet(false, true)) {
+            relay.submit(this::relayPending);
+        }
+    }
+
+    private void relayPending() {
+        try {
+            while (wakeRequested.getAndSet(false)) {
+                List<IncidentEvent> events;
+                do {
+                    // Un événement en échec est replanifié : il sort du lot suivant sans bloquer les autres
+                    events = incidentEventRepository.findDue(StatutTraitement.EN_ATTENTE,
+                            LocalDateTime.now(), PageRequest.of(0, batchSize));
+                    events.forEach(this::dispatch);
+                } while (events.size() == batchSize);
+            }
+        } catch (Exception e) {
+            logger.error("Erreur du relais d'événements d'incident", e);
+        } finally {
+            relaying.set(false);
+            if (wakeRequested.get()) {
+                wake();
+            }
+        }
+    }
+
+    private void dispatch(IncidentEvent event) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                Incident incident = incidentRepository.findById(event.getIncidentId()).orElse(null);
+                if (incident != null) {
+                    for (IncidentEventSubscriber subscriber : subscribers) {
+                        subscriber.onEvent(event, incident);
+                    }
+                }
+                event.setStatut(StatutTraitement.TRAITE);
+                event.setProcessedAt(LocalDateTime.now());
+                incidentEventRepository.save(event);
+            });
+        } catch (Exception e) {
+            // Tentative comptée hors de la transaction annulée
+            int attempts = event.getTentatives() + 1;
+            event.setTentatives(attempts);
+            event.setStatut(attempts >= maxAttempts ? StatutTraitement.ECHEC : StatutTraitement.EN_ATTENTE);
+            event.setProcessedAt(null);
+            // Délai exponentiel : retry-delay, x2, x4... plafonné ; repris par le passage planifié
+            long delay = Math.min(retryDelaySeconds << Math.min(attempts - 1, 20), maxRetryDelaySeconds);
+            event.setProchaineTentative(LocalDateTime.now().plusSeconds(delay));
+            incidentEventRepository.save(event);
+            logger.error("Erreur lors du traitement de l'événement {} ({}) pour l'incident {}, tentative {}",
+                    event.getId(), event.getType(), event.getIncidentId(), attempts, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.events.cleanup-interval-ms:3600000}")
+    public void purgeProcessed() {
+        int deleted = incidentEventRepository.deleteProcessedBefore(StatutTraitement.TRAITE,
+                LocalDateTime.now().minusDays(retentionDays));
+        if (deleted > 0) {
+            logger.info("{} événements d'incident traités purgés", deleted);
+        }
+    }
+
+    public long getPendingCount() {
+        return incidentEventRepository.countByStatut(StatutTraitement.EN_ATTENTE);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        relay.shutdownNow();
+    }
+}
@@ -0,0 +1,11 @@
+package com.citesignal.service;
+
+import com.citesignal.model.Incident;
+import com.citesignal.model.IncidentEvent;
+
+// Abonné aux événements d'incident diffusés par IncidentEventOutbox. Appelé hors de la
+// transaction d'origine, dans la transaction de traitement de l'événement.
+public interface IncidentEventSubscriber {
+    
+    void onEvent(IncidentEvent event, Incident incident);
+}
@@ -0,0 +1,144 @@
+package com.citesignal.service;
+
+import com.citesignal.model.Incident;
+import com.citesignal.model.IncidentEvent;
+import com.citesignal.model.Notification;
+import com.citesignal.model.StatutIncident;
+import com.citesignal.model.User;
+import com.citesignal.repository.NotificationRepository;
+import com.citesignal.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+// Notifications (en base et poussées en temps réel) et emails déclenchés par les événements d'incident
+@Component
+public class IncidentNotificationSubscriber implements IncidentEventSubscriber {
+    
+    private static final Logger logger = LoggerFactory.getLogger(IncidentNotificationSubscriber.class);
+    
+    @Autowired
+    private NotificationRepository notificationRepository;
+    
+    @Autowired
+    private UserRepository userRepository;
+    
+    @Autowired
+    private EmailService emailService;
+    
+    @Autowired
+    private NotificationPushService notificationPushService;
+    
+    @Autowired
+    private UnreadNotificationCounter unreadCounter;
+    
+    @Override
+    public void onEvent(IncidentEvent event, Incident incident) {
+        switch (event.getType()) {
+            case INCIDENT_CREE -> createNotification(
+                    incident.getCitoyen(),
+                    incident,
+                    "Signalement créé",
+                    "Votre signalement '" + incident.getTitre() + "' a été créé avec succès.",
+                    Notification.TypeNotification.INCIDENT_CREE
+            );
+            case INCIDENT_ASSIGNE -> {
+                User agent = event.getUserId() != null
+                        ? userRepository.findById(event.getUserId()).orElse(null)
+                        : incident.getAgent();
+                if (agent != null) {
+                    notifyAgentOfAssignment(incident, agent);
+                }
+            }
+            case STATUT_MODIFIE -> notifyCitizenOfStatusChange(incident, event.getNouveauStatut());
+            case INCIDENT_CLOTURE -> {
+                if (incident.getAgent() != null) {
+                    createNotification(
+                            incident.getAgent(),
+                            incident,
+                            "Incident clôturé",
+                            "L'incident '" + incident.getTitre() + "' a été clôturé par le citoyen.",
+                            Notification.TypeNotification.INCIDENT_CLOTURE
+                    );
+                }
+            }
+        }
+    }
+    
+    private void notifyCitizenOfStatusChange(Incident incident, StatutIncident statut) {
+        String message = getStatusChangeMessage(statut != null ? statut : incident.getStatut(), incident.getTitre());
+        
+        // Notification en base
+        createNotification(
+                incident.getCitoyen(),
+                incident,
+                "Mise à jour de votre signalement",
+                message,
+                Notification.TypeNotification.INCIDENT_MIS_A_JOUR
+        );
+        
+        // Email
+        try {
+            emailService.sendIncidentUpdateEmail(
+                    incident.getCitoyen().getEmail(),
+                    incident.getTitre(),
+                    message
+            );
+        } catch (Exception e) {
+            logger.error("Erreur lors de l'envoi de l'email de mise à jour", e);
+        }
+    }
+    
+    private String getStatusChangeMessage(StatutIncident statut, String titre) {
+        return switch (statut) {
+            case PRIS_EN_CHARGE -> "Votre signalement '" + titre + "' a été pris en charge par un agent municipal.";
+            case EN_RESOLUTION -> "L'intervention pour votre signalement '" + titre + "' est en cours.";
+            case RESOLU -> "Votre signalement '" + titre + "' a été résolu. Veuillez vérifier et donner votre avis.";
+            case CLOTURE -> "Votre signalement '" + titre + "' a été clôturé.";
+            default -> "Votre signalement '" + titre + "' a été mis à jour.";
+        };
+    }
+    
+    private void notifyAgentOfAssignment(Incident incident, User agent) {
+        String message = "Vous avez été assigné au signalement '" + incident.getTitre() + 
+                        "' situé à " + incident.getAdresse() + ".";
+        
+        // Notification en base
+        createNotification(
+                agent,
+                incident,
+                "Nouvelle assignation d'incident",
+                message,
+                Notification.TypeNotification.INCIDENT_ASSIGNE
+        );
+        
+        // Email
+        try {
+            emailService.sendAgentAssignmentEmail(
+                    agent.getEmail(),
+                    incident.getTitre(),
+                    incident.getAdresse(),
+                    incident.getDescription()
+            );
+        } catch (Exception e) {
+            logger.error("Erreur lors de l'envoi de l'email d'assignation à l'agent", e);
+        }
+    }
+    
+    private void createNotification(User user, Incident incident, String titre, String message, 
+                                    Notification.TypeNotification type) {
+        Notification notification = new Notification();
+        notification.setUser(user);
+        notification.setIncident(incident);
+        notification.setTitre(titre);
+        notification.setMessage(message);
+        notification.setType(type);
+        notification.setLu(false);
+        notificationRepository.save(notification);
+        unreadCounter.incrementAfterCommit(user.getId());
+        
+        // Poussée en temps réel si le destinataire est connecté
+        notificationPushService.pushAfterCommit(user.getEmail(), notification);
+    }
+}
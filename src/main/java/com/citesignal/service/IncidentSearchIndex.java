@@ -0,0 +1,688 @@
+package com.citesignal.service;
+
+import com.citesignal.model.CategorieIncident;
+import com.citesignal.model.Incident;
+import com.citesignal.model.StatutIncident;
+import com.citesignal.repository.IncidentRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+// Index inversé en mémoire sur titre, description et adresse des incidents.
+// Les termes sont normalisés (minuscules, sans accents, mots vides retirés, racinisation légère
+// du français) et la recherche se fait par préfixe de terme, les filtres structurés étant
+// appliqués directement sur les documents de l'index.
+// Chaque incident reçoit un ordinal dans l'ordre (createdAt, id) ; les listes de postings sont
+// des tableaux d'ordinaux triés, intersectés à la demande dans l'ordre du tri : une page ne
+// parcourt que les candidats nécessaires, sans construire ni trier l'ensemble des résultats.
+@Component
+public class IncidentSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(IncidentSearchIndex.class);
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MIN_TERM_LENGTH = 2;
+    private static final int MIN_STEM_LENGTH = 4;
+    // Borne basse du parcours (createdAt, id) lors de la reconstruction
+    private static final LocalDateTime ORIGINE = LocalDateTime.of(1970, 1, 1, 0, 0);
+    private static final long NO_DATE = Long.MIN_VALUE;
+    private static final StatutIncident[] STATUTS = StatutIncident.values();
+    private static final CategorieIncident[] CATEGORIES = CategorieIncident.values();
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "le", "la", "les", "l", "un", "une", "des", "de", "du", "d", "au", "aux",
+            "et", "ou", "en", "a", "dans", "sur", "sous", "par", "pour", "avec", "sans",
+            "ce", "cet", "cette", "ces", "qui", "que", "qu", "est", "sont", "il", "elle",
+            "ils", "elles", "on", "se", "sa", "son", "ses", "leur", "leurs", "ne", "pas", "y"
+    );
+
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    @Value("${app.search.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.search.index.batch-size:1000}")
+    private int batchSize;
+
+    private volatile State state;
+    private final AtomicBoolean rebuilding = new AtomicBoolean(false);
+    private final Queue<Long> pendingDuringRebuild = new ConcurrentLinkedQueue<>();
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "incident-search-index");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    record Document(Set<String> terms, StatutIncident statut, CategorieIncident categorie,
+                    Long quartierId, Long departementId, LocalDateTime createdAt) {
+    }
+
+    // Page de résultats ; total vaut -1 lorsqu'il n'a pas été demandé
+    public record SearchPage(List<Long> ids, boolean hasNext, long total) {
+    }
+
+    // Ordinaux des incidents contenant un terme, triés par ordre croissant
+    private static final class Posting {
+        private final String term;
+        private int[] ordinals = new int[2];
+        private int size;
+
+        Posting(String term) {
+            this.term = term;
+        }
+
+        void add(int ordinal) {
+            if (size == 0 || ordinals[size - 1] < ordinal) {
+                ensureCapacity();
+                ordinals[size++] = ordinal;
+                return;
+            }
+            int position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            ensureCapacity();
+            System.arraycopy(ordinals, position, ordinals, position + 1, size - position);
+            ordinals[position] = ordinal;
+            size++;
+        }
+
+        boolean remove(int ordinal) {
+            int position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (position >= 0) {
+                System.arraycopy(ordinals, position + 1, ordinals, position, size - position - 1);
+                size--;
+            }
+            return size == 0;
+        }
+
+        private void ensureCapacity() {
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, ordinals.length * 2);
+            }
+        }
+    }
+
+    // Union des postings d'un préfixe, parcourue dans un seul sens avec une position par liste
+    private static final class PrefixMatch {
+        private final Posting[] postings;
+        private final int[] positions;
+        private final long size;
+
+        PrefixMatch(Collection<Posting> matching, boolean ascending) {
+            postings = matching.toArray(new Posting[0]);
+            positions = new int[postings.length];
+            long total = 0;
+            for (int i = 0; i < postings.length; i++) {
+                positions[i] = ascending ? 0 : postings[i].size - 1;
+                total += postings[i].size;
+            }
+            size = total;
+        }
+
+        // Premier ordinal de l'union à partir de la borne dans le sens du parcours, -1 si aucun
+        int seek(int bound, boolean ascending) {
+            int best = -1;
+            for (int i = 0; i < postings.length; i++) {
+                Posting posting = postings[i];
+                if (ascending) {
+                    int position = Arrays.binarySearch(posting.ordinals, positions[i], posting.size, bound);
+                    position = position >= 0 ? position : -position - 1;
+                    positions[i] = position;
+                    if (position < posting.size && (best < 0 || posting.ordinals[position] < best)) {
+                        best = posting.ordinals[position];
+                    }
+                } else if (positions[i] >= 0) {
+                    int position = Arrays.binarySearch(posting.ordinals, 0, positions[i] + 1, bound);
+                    position = position >= 0 ? position : -position - 2;
+                    positions[i] = position;
+                    if (position >= 0 && posting.ordinals[position] > best) {
+                        best = posting.ordinals[position];
+                    }
+                }
+            }
+            return best;
+        }
+    }
+
+    // Table id -> ordinal à adressage ouvert, sans objets par entrée
+    private static final class OrdinalTable {
+        private long[] keys = new long[1024];
+        private int[] values = new int[1024];
+        private int size;
+
+        int get(long id) {
+            int mask = keys.length - 1;
+            for (int slot = hash(id) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == id) {
+                    return values[slot];
+                }
+            }
+            return -1;
+        }
+
+        void put(long id, int ordinal) {
+            if ((size + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int slot = hash(id) & mask;
+            while (keys[slot] != 0 && keys[slot] != id) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys[slot] == 0) {
+                size++;
+            }
+            keys[slot] = id;
+            values[slot] = ordinal;
+        }
+
+        // Suppression par décalage arrière, sans marqueur
+        void remove(long id) {
+            int mask = keys.length - 1;
+            int slot = hash(id) & mask;
+            while (keys[slot] != id) {
+                if (keys[slot] == 0) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            size--;
+            int gap = slot;
+            for (int next = (gap + 1) & mask; keys[next] != 0; next = (next + 1) & mask) {
+                int home = hash(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    keys[gap] = keys[next];
+                    values[gap] = values[next];
+                    gap = next;
+                }
+            }
+            keys[gap] = 0;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int hash(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    // Documents indexés en colonnes de tableaux primitifs, par ordinal, dans l'ordre (createdAt, id).
+    // Un nouvel incident est en général le plus récent et ajouté en fin ; des validations
+    // concurrentes peuvent arriver dans le désordre, il est alors inséré à sa place.
+    private static final class State {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final ConcurrentSkipListMap<String, Posting> postings = new ConcurrentSkipListMap<>();
+        private final OrdinalTable ordinals = new OrdinalTable();
+        private final BitSet removed = new BitSet();
+        private long[] ids = new long[1024];
+        private long[] createdAt = new long[1024];
+        private long[] quartierIds = new long[1024];
+        private long[] departementIds = new long[1024];
+        private byte[] statuts = new byte[1024];
+        private byte[] categories = new byte[1024];
+        private String[][] terms = new String[1024][];
+        private int count;
+        private int live;
+
+        void put(Long id, Document document) {
+            lock.writeLock().lock();
+            try {
+                int ordinal = ordinals.get(id);
+                String[] old = null;
+                if (ordinal < 0) {
+                    ordinal = insert(id, toNanos(document.createdAt()));
+                } else {
+                    old = terms[ordinal];
+                    for (String term : old) {
+                        if (!document.terms().contains(term)) {
+                            removePosting(term, ordinal);
+                        }
+                    }
+                }
+                // Termes partagés avec les clés de l'index : une seule instance par terme
+                String[] canonical = new String[document.terms().size()];
+                int i = 0;
+                for (String term : document.terms()) {
+                    Posting posting = postings.computeIfAbsent(term, Posting::new);
+                    posting.add(ordinal);
+                    canonical[i++] = posting.term;
+                }
+                terms[ordinal] = canonical;
+                createdAt[ordinal] = toNanos(document.createdAt());
+                statuts[ordinal] = (byte) (document.statut() != null ? document.statut().ordinal() : -1);
+                categories[ordinal] = (byte) (document.categorie() != null ? document.categorie().ordinal() : -1);
+                quartierIds[ordinal] = document.quartierId() != null ? document.quartierId() : 0;
+                departementIds[ordinal] = document.departementId() != null ? document.departementId() : 0;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(Long id) {
+            lock.writeLock().lock();
+            try {
+                int ordinal = ordinals.get(id);
+                if (ordinal < 0) {
+                    return;
+                }
+                for (String term : terms[ordinal]) {
+                    removePosting(term, ordinal);
+                }
+                terms[ordinal] = null;
+                removed.set(ordinal);
+                ordinals.remove(id);
+                live--;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private int insert(long id, long nanos) {
+            if (count == ids.length) {
+                int capacity = ids.length * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                createdAt = Arrays.copyOf(createdAt, capacity);
+                quartierIds = Arrays.copyOf(quartierIds, capacity);
+                departementIds = Arrays.copyOf(departementIds, capacity);
+                statuts = Arrays.copyOf(statuts, capacity);
+                categories = Arrays.copyOf(categories, capacity);
+                terms = Arrays.copyOf(terms, capacity);
+            }
+            int ordinal = count == 0 || createdAt[count - 1] < nanos
+                    || (createdAt[count - 1] == nanos && ids[count - 1] < id) ? count : lowerBound(nanos, id);
+            if (ordinal < count) {
+                shift(ordinal);
+            }
+            count++;
+            ids[ordinal] = id;
+            createdAt[ordinal] = nanos;
+            terms[ordinal] = new String[0];
+            ordinals.put(id, ordinal);
+            live++;
+            return ordinal;
+        }
+
+        // Décale d'un rang les documents à partir de l'ordinal, avec leurs postings
+        private void shift(int from) {
+            int length = count - from;
+            System.arraycopy(ids, from, ids, from + 1, length);
+            System.arraycopy(createdAt, from, createdAt, from + 1, length);
+            System.arraycopy(quartierIds, from, quartierIds, from + 1, length);
+            System.arraycopy(departementIds, from, departementIds, from + 1, length);
+            System.arraycopy(statuts, from, statuts, from + 1, length);
+            System.arraycopy(categories, from, categories, from + 1, length);
+            System.arraycopy(terms, from, terms, from + 1, length);
+            for (int i = removed.previousSetBit(count - 1); i >= from; i = removed.previousSetBit(i - 1)) {
+                removed.clear(i);
+                removed.set(i + 1);
+            }
+            for (int i = from + 1; i <= count; i++) {
+                if (!removed.get(i)) {
+                    ordinals.put(ids[i], i);
+                }
+            }
+            for (Posting posting : postings.values()) {
+                int position = Arrays.binarySearch(posting.ordinals, 0, posting.size, from);
+                for (int i = position >= 0 ? position : -position - 1; i < posting.size; i++) {
+                    posting.ordinals[i]++;
+                }
+            }
+        }
+
+        private void removePosting(String term, int ordinal) {
+            Posting posting = postings.get(term);
+            if (posting != null && posting.remove(ordinal)) {
+                postings.remove(term);
+            }
+        }
+
+        // Premier ordinal dont le couple (createdAt, id) est supérieur ou égal à la clé
+        int lowerBound(long nanos, long id) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (createdAt[middle] < nanos || (createdAt[middle] == nanos && ids[middle] < id)) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        boolean accepts(int ordinal, StatutIncident statut, CategorieIncident categorie,
+                        Long quartierId, Long departementId, long debut, long fin) {
+            return !removed.get(ordinal)
+                    && (statut == null || statuts[ordinal] == statut.ordinal())
+                    && (categorie == null || categories[ordinal] == categorie.ordinal())
+                    && (quartierId == null || quartierIds[ordinal] == quartierId)
+                    && (departementId == null || departementIds[ordinal] == departementId)
+                    && (debut == NO_DATE || (createdAt[ordinal] != NO_DATE && createdAt[ordinal] >= debut))
+                    && (fin == NO_DATE || (createdAt[ordinal] != NO_DATE && createdAt[ordinal] <= fin));
+        }
+    }
+
+    public boolean isReady() {
+        return enabled && state != null;
+    }
+
+    public boolean isRebuilding() {
+        return rebuilding.get();
+    }
+
+    public int size() {
+        State current = state;
+        return current != null ? current.live : 0;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        requestRebuild();
+    }
+
+    // Lance une reconstruction complète en arrière-plan. L'index courant reste
+    // interrogeable jusqu'à la bascule sur le nouvel index.
+    public boolean requestRebuild() {
+        if (!enabled || !rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        rebuildExecutor.submit(this::rebuild);
+        return true;
+    }
+
+    private void rebuild() {
+        long start = System.currentTimeMillis();
+        try {
+            // Parcours dans l'ordre (createdAt, id) : les ordinaux suivent l'ordre de tri
+            State fresh = new State();
+            LocalDateTime apres = ORIGINE;
+            Long apresId = 0L;
+            List<Object[]> rows;
+            do {
+                rows = incidentRepository.findSearchIndexRows(apres, apresId, PageRequest.of(0, batchSize));
+                for (Object[] row : rows) {
+                    fresh.put((Long) row[0], toDocument(row));
+                    apres = (LocalDateTime) row[8];
+                    apresId = (Long) row[0];
+                }
+            } while (rows.size() == batchSize);
+
+            state = fresh;
+            replayPending(fresh);
+            logger.info("Index de recherche reconstruit: {} incidents en {} ms",
+                    fresh.live, System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Erreur lors de la reconstruction de l'index de recherche", e);
+        } finally {
+            rebuilding.set(false);
+            State current = state;
+            if (current != null) {
+                replayPending(current);
+            }
+        }
+    }
+
+    // Réindexe les incidents modifiés pendant la reconstruction
+    private void replayPending(State target) {
+        Set<Long> ids = new HashSet<>();
+        Long id;
+        while ((id = pendingDuringRebuild.poll()) != null) {
+            ids.add(id);
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        Set<Long> found = new HashSet<>();
+        for (Object[] row : incidentRepository.findSearchIndexRowsByIdIn(ids)) {
+            target.put((Long) row[0], toDocument(row));
+            found.add((Long) row[0]);
+        }
+        ids.stream().filter(i -> !found.contains(i)).forEach(target::remove);
+    }
+
+    // Indexe (ou réindexe) l'incident une fois la transaction courante validée
+    public void index(Incident incident) {
+        if (!enabled || incident.getId() == null) {
+            return;
+        }
+        Long id = incident.getId();
+        Document document = new Document(
+                analyzeAll(incident.getTitre(), incident.getDescription(), incident.getAdresse()),
+                incident.getStatut(),
+                incident.getCategorie(),
+                incident.getQuartier() != null ? incident.getQuartier().getId() : null,
+                incident.getDepartement() != null ? incident.getDepartement().getId() : null,
+                incident.getCreatedAt()
+        );
+        TransactionCallbacks.afterCommit(() -> {
+            State current = state;
+            if (current != null) {
+                current.put(id, document);
+            }
+            if (rebuilding.get()) {
+                pendingDuringRebuild.add(id);
+            }
+        });
+    }
+
+    // Incidents correspondant à tous les termes de la recherche et aux filtres, dans l'ordre
+    // (createdAt, id). Le parcours commence après le curseur (apres, apresId) s'il est fourni,
+    // saute offset résultats et s'arrête après limit, sauf si le total est demandé : il est
+    // alors compté jusqu'au bout, sans conserver les identifiants.
+    public SearchPage search(String recherche,
+                             StatutIncident statut,
+                             CategorieIncident categorie,
+                             Long quartierId,
+                             Long departementId,
+                             LocalDateTime dateDebut,
+                             LocalDateTime dateFin,
+                             boolean ascending,
+                             LocalDateTime apres,
+                             Long apresId,
+                             long offset,
+                             int limit,
+                             boolean countTotal) {
+        State current = state;
+        List<String> terms = analyze(recherche);
+        if (current == null || terms.isEmpty()) {
+            return new SearchPage(List.of(), false, countTotal ? 0 : -1);
+        }
+
+        current.lock.readLock().lock();
+        try {
+            List<PrefixMatch> matches = new ArrayList<>();
+            for (String term : new LinkedHashSet<>(terms)) {
+                PrefixMatch match = new PrefixMatch(
+                        current.postings.subMap(term, true, term + Character.MAX_VALUE, false).values(), ascending);
+                if (match.size == 0) {
+                    return new SearchPage(List.of(), false, countTotal ? 0 : -1);
+                }
+                matches.add(match);
+            }
+            // Les listes les plus courtes d'abord : elles font avancer l'intersection le plus vite
+            matches.sort(Comparator.comparingLong(match -> match.size));
+
+            // Bornes du parcours : période demandée puis curseur
+            long debut = dateDebut != null ? toNanos(dateDebut) : NO_DATE;
+            long fin = dateFin != null ? toNanos(dateFin) : NO_DATE;
+            int first = debut != NO_DATE ? current.lowerBound(debut, Long.MIN_VALUE) : 0;
+            int last = (fin != NO_DATE ? current.lowerBound(fin, Long.MAX_VALUE) : current.count) - 1;
+            if (apresId != null) {
+                int ordinal = current.ordinals.get(apresId);
+                long cursorNanos = apres != null ? toNanos(apres)
+                        : ordinal >= 0 ? current.createdAt[ordinal] : NO_DATE;
+                if (ascending) {
+                    first = Math.max(first, current.lowerBound(cursorNanos, apresId + 1));
+                } else {
+                    last = Math.min(last, current.lowerBound(cursorNanos, apresId) - 1);
+                }
+            }
+
+            List<Long> ids = new ArrayList<>(Math.min(limit, 256));
+            boolean hasNext = false;
+            long total = 0;
+            long skipped = 0;
+            int step = ascending ? 1 : -1;
+            int ordinal = ascending ? first : last;
+            while ((ordinal = nextMatch(matches, ordinal, first, last, ascending)) >= 0) {
+                if (current.accepts(ordinal, statut, categorie, quartierId, departementId, debut, fin)) {
+                    total++;
+                    if (skipped < offset) {
+                        skipped++;
+                    } else if (ids.size() < limit) {
+                        ids.add(current.ids[ordinal]);
+                    } else {
+                        hasNext = true;
+                        if (!countTotal) {
+                            break;
+                        }
+                    }
+                }
+                ordinal += step;
+            }
+            return new SearchPage(ids, hasNext, countTotal ? total : -1);
+        } finally {
+            current.lock.readLock().unlock();
+        }
+    }
+
+    // Intersection à sauts : chaque liste avance jusqu'au candidat courant, qui recule (ou
+    // avance) jusqu'à ce que toutes les listes le contiennent
+    private static int nextMatch(List<PrefixMatch> matches, int candidate, int first, int last, boolean ascending) {
+        while (candidate >= first && candidate <= last) {
+            boolean agreed = true;
+            for (PrefixMatch match : matches) {
+                int found = match.seek(candidate, ascending);
+                if (found < 0) {
+                    return -1;
+                }
+                if (found != candidate) {
+                    candidate = found;
+                    agreed = false;
+                    break;
+                }
+            }
+            if (agreed) {
+                return candidate;
+            }
+        }
+        return -1;
+    }
+
+    private static long toNanos(LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return NO_DATE;
+        }
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000_000L + dateTime.getNano();
+    }
+
+    private static Document toDocument(Object[] row) {
+        return new Document(
+                analyzeAll((String) row[1], (String) row[2], (String) row[3]),
+                (StatutIncident) row[4],
+                (CategorieIncident) row[5],
+                (Long) row[6],
+                (Long) row[7],
+                (LocalDateTime) row[8]
+        );
+    }
+
+    private static Set<String> analyzeAll(String... fields) {
+        Set<String> terms = new HashSet<>();
+        for (String field : fields) {
+            terms.addAll(analyze(field));
+        }
+        return Set.copyOf(terms);
+    }
+
+    public static List<String> analyze(String text) {
+        List<String> terms = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return terms;
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD))
+                .replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        for (String token : SEPARATORS.split(folded)) {
+            if (token.length() < MIN_TERM_LENGTH || STOP_WORDS.contains(token)) {
+                continue;
+            }
+            String term = stem(token);
+            if (term.length() >= MIN_TERM_LENGTH) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    // Racinisation légère du français : pluriels, féminins et quelques suffixes courants. Une
+    // racine garde au moins MIN_STEM_LENGTH caractères : la recherche se faisant par préfixe,
+    // "station" réduit à "st" ramènerait tous les mots commençant par "st".
+    static String stem(String term) {
+        String t = term;
+        if (t.length() - 5 >= MIN_STEM_LENGTH && t.endsWith("ement")) {
+            t = t.substring(0, t.length() - 5);
+        } else if (t.length() - 5 >= MIN_STEM_LENGTH && (t.endsWith("ation") || t.endsWith("ition"))) {
+            t = t.substring(0, t.length() - 5);
+        } else if (t.length() - 1 >= MIN_STEM_LENGTH && t.endsWith("aux")) {
+            t = t.substring(0, t.length() - 3) + "al";
+        }
+        if (t.length() - 1 >= MIN_STEM_LENGTH && (t.endsWith("s") || t.endsWith("x"))) {
+            t = t.substring(0, t.length() - 1);
+        }
+        if (t.length() - 1 >= MIN_STEM_LENGTH && t.endsWith("e")) {
+            t = t.substring(0, t.length() - 1);
+        }
+        return t;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+}
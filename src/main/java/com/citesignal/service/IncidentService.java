@@ -1,24 +1,39 @@
 package com.citesignal.service;
 
 import com.citesignal.dto.CreateIncidentRequest;
+import com.citesignal.dto.IncidentCursor;
+import com.citesignal.dto.IncidentCursorPage;
+import com.citesignal.dto.IncidentStatusCounts;
+import com.citesignal.dto.StoredFile;
 import com.citesignal.dto.UpdateIncidentRequest;
 import com.citesignal.model.*;
 import com.citesignal.repository.*;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -42,16 +57,46 @@ public class IncidentService {
     private PhotoRepository photoRepository;
     
     @Autowired
-    private NotificationRepository notificationRepository;
+    private FileStorageService fileStorageService;
     
     @Autowired
-    private FileStorageService fileStorageService;
+    private PhotoDerivativeService photoDerivativeService;
     
     @Autowired
-    private EmailService emailService;
+    private IncidentEventOutbox incidentEventOutbox;
     
-    @Transactional
+    @Autowired
+    private IncidentStatisticsCounters statisticsCounters;
+    
+    @Autowired
+    private IncidentSearchIndex searchIndex;
+    
+    @Value("${app.search.index.max-sorted-ids:1000}")
+    private int maxSortedIds;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
+    private TransactionTemplate transactionTemplate;
+    
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+    
+    // Les photos sont écrites sur disque en parallèle avant la transaction, qui ne fait plus
+    // que les insertions ; en cas d'échec, les fichiers déjà écrits sont supprimés
     public Incident createIncident(CreateIncidentRequest request, Long citoyenId) {
+        List<StoredFile> storedPhotos = fileStorageService.storeFiles(request.getPhotos());
+        try {
+            return transactionTemplate.execute(status -> createIncident(request, citoyenId, storedPhotos));
+        } catch (RuntimeException e) {
+            fileStorageService.deleteStoredFiles(storedPhotos);
+            throw e;
+        }
+    }
+    
+    private Incident createIncident(CreateIncidentRequest request, Long citoyenId, List<StoredFile> storedPhotos) {
         User citoyen = userRepository.findById(citoyenId)
                 .orElseThrow(() -> new RuntimeException("Citoyen introuvable"));
         
@@ -74,45 +119,32 @@ public class IncidentService {
         }
         
         Incident savedIncident = incidentRepository.save(incident);
+        statisticsCounters.recordCreated(savedIncident);
+        searchIndex.index(savedIncident);
         
         // Gérer les photos
-        if (request.getPhotos() != null && !request.getPhotos().isEmpty()) {
-            List<Photo> photos = new ArrayList<>();
-            for (MultipartFile file : request.getPhotos()) {
-                if (file != null && !file.isEmpty()) {
-                    try {
-                        String filename = fileStorageService.storeFile(file);
-                        Photo photo = new Photo();
-                        photo.setNomFichier(file.getOriginalFilename());
-                        photo.setChemin(fileStorageService.getFileUrl(filename));
-                        photo.setTypeMime(file.getContentType());
-                        photo.setTaille(file.getSize());
-                        photo.setIncident(savedIncident);
-                        photos.add(photo);
-                    } catch (Exception e) {
-                        logger.error("Erreur lors de l'upload de la photo", e);
-                    }
-                }
-            }
-            photoRepository.saveAll(photos);
-        }
+        savePhotos(savedIncident, storedPhotos);
         
-        // Créer une notification pour le citoyen
-        createNotification(
-                citoyen,
-                savedIncident,
-                "Signalement créé",
-                "Votre signalement '" + savedIncident.getTitre() + "' a été créé avec succès.",
-                Notification.TypeNotification.INCIDENT_CREE
-        );
+        // Notification du citoyen diffusée après commit
+        incidentEventOutbox.publish(IncidentEvent.TypeEvenement.INCIDENT_CREE, savedIncident);
         
         logger.info("Incident créé: {} par le citoyen {}", savedIncident.getId(), citoyenId);
         return savedIncident;
     }
     
-    @Transactional
     @PreAuthorize("hasAnyRole('AGENT_MUNICIPAL', 'ADMINISTRATEUR', 'SUPERADMIN')")
     public Incident updateIncident(Long incidentId, UpdateIncidentRequest request, Long userId) {
+        List<StoredFile> storedPhotos = fileStorageService.storeFiles(request.getPhotos());
+        try {
+            return transactionTemplate.execute(status -> updateIncident(incidentId, request, userId, storedPhotos));
+        } catch (RuntimeException e) {
+            fileStorageService.deleteStoredFiles(storedPhotos);
+            throw e;
+        }
+    }
+    
+    private Incident updateIncident(Long incidentId, UpdateIncidentRequest request, Long userId,
+                                    List<StoredFile> storedPhotos) {
         Incident incident = incidentRepository.findById(incidentId)
                 .orElseThrow(() -> new RuntimeException("Incident introuvable"));
         
@@ -121,6 +153,7 @@ public class IncidentService {
         
         // Sauvegarder l'ancien statut pour les notifications
         StatutIncident oldStatut = incident.getStatut();
+        IncidentStatisticsCounters.Snapshot before = IncidentStatisticsCounters.Snapshot.of(incident);
         
         // Vérifier les permissions
         if (user.hasRole(RoleName.AGENT_MUNICIPAL) && 
@@ -182,8 +215,9 @@ public class IncidentService {
                         updateIncidentStatus(incident, StatutIncident.PRIS_EN_CHARGE, null);
                     }
                     
-                    // Notifier l'agent de l'assignation
-                    notifyAgentOfAssignment(incident, agent);
+                    // Notifier l'agent de l'assignation (après commit)
+                    incidentEventOutbox.publish(IncidentEvent.TypeEvenement.INCIDENT_ASSIGNE, incident,
+                            null, null, agent.getId());
                 }
             }
         }
@@ -194,38 +228,43 @@ public class IncidentService {
         }
         
         // Ajouter de nouvelles photos
-        if (request.getPhotos() != null && !request.getPhotos().isEmpty()) {
-            List<Photo> photos = new ArrayList<>();
-            for (MultipartFile file : request.getPhotos()) {
-                if (file != null && !file.isEmpty()) {
-                    try {
-                        String filename = fileStorageService.storeFile(file);
-                        Photo photo = new Photo();
-                        photo.setNomFichier(file.getOriginalFilename());
-                        photo.setChemin(fileStorageService.getFileUrl(filename));
-                        photo.setTypeMime(file.getContentType());
-                        photo.setTaille(file.getSize());
-                        photo.setIncident(incident);
-                        photos.add(photo);
-                    } catch (Exception e) {
-                        logger.error("Erreur lors de l'upload de la photo", e);
-                    }
-                }
-            }
-            photoRepository.saveAll(photos);
-        }
+        savePhotos(incident, storedPhotos);
         
         Incident updatedIncident = incidentRepository.save(incident);
+        statisticsCounters.recordClassificationChange(before, updatedIncident);
+        searchIndex.index(updatedIncident);
         
-        // Notifier le citoyen si le statut a changé
+        // Notifier le citoyen si le statut a changé (après commit)
         if (oldStatut != updatedIncident.getStatut()) {
-            notifyCitizenOfStatusChange(updatedIncident, oldStatut);
+            incidentEventOutbox.publish(IncidentEvent.TypeEvenement.STATUT_MODIFIE, updatedIncident,
+                    oldStatut, updatedIncident.getStatut(), null);
         }
         
         logger.info("Incident mis à jour: {} par l'utilisateur {}", incidentId, userId);
         return updatedIncident;
     }
     
+    private void savePhotos(Incident incident, List<StoredFile> storedPhotos) {
+        if (storedPhotos.isEmpty()) {
+            return;
+        }
+        List<Photo> photos = new ArrayList<>();
+        for (StoredFile storedFile : storedPhotos) {
+            Photo photo = new Photo();
+            photo.setNomFichier(storedFile.getOriginalFilename());
+            photo.setChemin(storedFile.getUrl());
+            photo.setTypeMime(storedFile.getContentType());
+            photo.setTaille(storedFile.getSize());
+            photo.setEmpreinte(storedFile.getSha256());
+            photo.setIncident(incident);
+            photos.add(photo);
+        }
+        photoRepository.saveAll(photos);
+        
+        // Miniatures générées en arrière-plan une fois les photos enregistrées
+        TransactionCallbacks.afterCommit(photoDerivativeService::wake);
+    }
+    
     @Transactional
     public void updateIncidentStatus(Incident incident, StatutIncident newStatut, String commentaire) {
         StatutIncident oldStatut = incident.getStatut();
@@ -236,6 +275,7 @@ public class IncidentService {
         }
         
         incident.setStatut(newStatut);
+        statisticsCounters.recordStatusChange(incident, oldStatut, newStatut);
         
         // Actions spécifiques selon le nouveau statut
         switch (newStatut) {
@@ -276,21 +316,16 @@ public class IncidentService {
         }
         
         incident.setStatut(StatutIncident.CLOTURE);
+        statisticsCounters.recordStatusChange(incident, StatutIncident.RESOLU, StatutIncident.CLOTURE);
         incident.setFeedbackCitoyen(feedbackCitoyen);
         incident.setNoteSatisfaction(noteSatisfaction);
         
         incidentRepository.save(incident);
+        searchIndex.index(incident);
         
-        // Notifier l'agent
-        if (incident.getAgent() != null) {
-            createNotification(
-                    incident.getAgent(),
-                    incident,
-                    "Incident clôturé",
-                    "L'incident '" + incident.getTitre() + "' a été clôturé par le citoyen.",
-                    Notification.TypeNotification.INCIDENT_CLOTURE
-            );
-        }
+        // Notifier l'agent (après commit)
+        incidentEventOutbox.publish(IncidentEvent.TypeEvenement.INCIDENT_CLOTURE, incident,
+                StatutIncident.RESOLU, StatutIncident.CLOTURE, null);
         
         logger.info("Incident clôturé: {}", incidentId);
     }
@@ -328,18 +363,49 @@ public class IncidentService {
     }
     
     public Page<Incident> getIncidentsByCitoyen(Long citoyenId, Pageable pageable) {
-        User citoyen = userRepository.findById(citoyenId)
-                .orElseThrow(() -> new RuntimeException("Citoyen introuvable"));
-        return incidentRepository.findByCitoyen(citoyen, pageable);
+        return incidentRepository.findByCitoyenId(citoyenId, pageable);
     }
     
     public Page<Incident> getIncidentsByAgent(Long agentId, Pageable pageable) {
-        User agent = userRepository.findById(agentId)
-                .orElseThrow(() -> new RuntimeException("Agent introuvable"));
-        return incidentRepository.findByAgent(agent, pageable);
+        return incidentRepository.findByAgentId(agentId, pageable);
     }
     
-    public Page<Incident> searchIncidents(
+    public IncidentStatusCounts getIncidentCountsForCitoyen(Long citoyenId) {
+        return toStatusCounts(incidentRepository.countByStatutForCitoyen(citoyenId, LocalDate.now().atStartOfDay()));
+    }
+    
+    public IncidentStatusCounts getIncidentCountsForAgent(Long agentId) {
+        return toStatusCounts(incidentRepository.countByStatutForAgent(agentId, LocalDate.now().atStartOfDay()));
+    }
+    
+    private IncidentStatusCounts toStatusCounts(List<Object[]> rows) {
+        IncidentStatusCounts counts = new IncidentStatusCounts();
+        long today = 0;
+        for (Object[] row : rows) {
+            counts.getByStatut().put((StatutIncident) row[0], ((Number) row[1]).longValue());
+            today += row[2] != null ? ((Number) row[2]).longValue() : 0L;
+        }
+        counts.setCreatedToday(today);
+        return counts;
+    }
+    
+    // Variantes par curseur : la page suivante reprend après le dernier (createdAt, id) affiché,
+    // sans OFFSET. Le total n'est calculé que sur demande.
+    public IncidentCursorPage getIncidentsByCitoyen(Long citoyenId, IncidentCursor cursor, int size, boolean countTotal) {
+        Window<Incident> window = incidentRepository.findByCitoyenId(citoyenId,
+                IncidentCursor.toScrollPosition(cursor), Limit.of(size), IncidentCursor.SORT);
+        Long total = countTotal ? incidentRepository.countByCitoyenId(citoyenId) : null;
+        return toCursorPage(window.getContent(), window.hasNext(), total);
+    }
+    
+    public IncidentCursorPage getIncidentsByAgent(Long agentId, IncidentCursor cursor, int size, boolean countTotal) {
+        Window<Incident> window = incidentRepository.findByAgentId(agentId,
+                IncidentCursor.toScrollPosition(cursor), Limit.of(size), IncidentCursor.SORT);
+        Long total = countTotal ? incidentRepository.countByAgentId(agentId) : null;
+        return toCursorPage(window.getContent(), window.hasNext(), total);
+    }
+    
+    public IncidentCursorPage searchIncidents(
             StatutIncident statut,
             CategorieIncident categorie,
             Long quartierId,
@@ -347,84 +413,106 @@ public class IncidentService {
             LocalDateTime dateDebut,
             LocalDateTime dateFin,
             String recherche,
-            Pageable pageable
+            IncidentCursor cursor,
+            int size,
+            boolean countTotal
     ) {
-        return incidentRepository.searchIncidents(
-                statut, categorie, quartierId, departementId,
-                dateDebut, dateFin, recherche, pageable
-        );
+        if (recherche != null && !recherche.isBlank() && searchIndex.isReady()
+                && !IncidentSearchIndex.analyze(recherche).isEmpty()) {
+            // L'index reprend directement après le curseur et s'arrête à la fin de la page
+            IncidentSearchIndex.SearchPage page = searchIndex.search(recherche, statut, categorie,
+                    quartierId, departementId, dateDebut, dateFin, false,
+                    cursor != null ? cursor.getCreatedAt() : null, cursor != null ? cursor.getId() : null,
+                    0, size, countTotal);
+            return toCursorPage(loadInOrder(page.ids()), page.hasNext(), countTotal ? page.total() : null);
+        }
+        
+        Specification<Incident> spec = IncidentSpecifications.search(
+                statut, categorie, quartierId, departementId, dateDebut, dateFin, recherche);
+        Window<Incident> window = incidentRepository.findBy(
+                spec.and(IncidentSpecifications.fetchListAssociations()),
+                query -> query.sortBy(IncidentCursor.SORT)
+                        .limit(size)
+                        .scroll(IncidentCursor.toScrollPosition(cursor)));
+        Long total = countTotal ? incidentRepository.count(spec) : null;
+        return toCursorPage(window.getContent(), window.hasNext(), total);
     }
     
-    private void notifyCitizenOfStatusChange(Incident incident, StatutIncident oldStatut) {
-        String message = getStatusChangeMessage(incident.getStatut(), incident.getTitre());
-        
-        // Notification en base
-        createNotification(
-                incident.getCitoyen(),
-                incident,
-                "Mise à jour de votre signalement",
-                message,
-                Notification.TypeNotification.INCIDENT_MIS_A_JOUR
-        );
-        
-        // Email
-        try {
-            emailService.sendIncidentUpdateEmail(
-                    incident.getCitoyen().getEmail(),
-                    incident.getTitre(),
-                    message
-            );
-        } catch (Exception e) {
-            logger.error("Erreur lors de l'envoi de l'email de mise à jour", e);
-        }
+    private IncidentCursorPage toCursorPage(List<Incident> content, boolean hasNext, Long total) {
+        String nextCursor = hasNext && !content.isEmpty()
+                ? IncidentCursor.of(content.get(content.size() - 1)).encode()
+                : null;
+        return new IncidentCursorPage(content, nextCursor, total);
     }
     
-    private String getStatusChangeMessage(StatutIncident statut, String titre) {
-        return switch (statut) {
-            case PRIS_EN_CHARGE -> "Votre signalement '" + titre + "' a été pris en charge par un agent municipal.";
-            case EN_RESOLUTION -> "L'intervention pour votre signalement '" + titre + "' est en cours.";
-            case RESOLU -> "Votre signalement '" + titre + "' a été résolu. Veuillez vérifier et donner votre avis.";
-            case CLOTURE -> "Votre signalement '" + titre + "' a été clôturé.";
-            default -> "Votre signalement '" + titre + "' a été mis à jour.";
-        };
+    private List<Incident> loadInOrder(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, Incident> byId = incidentRepository.findByIdIn(ids).stream()
+                .collect(Collectors.toMap(Incident::getId, Function.identity()));
+        return ids.stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
     }
     
-    private void notifyAgentOfAssignment(Incident incident, User agent) {
-        String message = "Vous avez été assigné au signalement '" + incident.getTitre() + 
-                        "' situé à " + incident.getAdresse() + ".";
-        
-        // Notification en base
-        createNotification(
-                agent,
-                incident,
-                "Nouvelle assignation d'incident",
-                message,
-                Notification.TypeNotification.INCIDENT_ASSIGNE
-        );
-        
-        // Email
-        try {
-            emailService.sendAgentAssignmentEmail(
-                    agent.getEmail(),
-                    incident.getTitre(),
-                    incident.getAdresse(),
-                    incident.getDescription()
-            );
-        } catch (Exception e) {
-            logger.error("Erreur lors de l'envoi de l'email d'assignation à l'agent", e);
+    public Page<Incident> searchIncidents(
+            StatutIncident statut,
+            CategorieIncident categorie,
+            Long quartierId,
+            Long departementId,
+            LocalDateTime dateDebut,
+            LocalDateTime dateFin,
+            String recherche,
+            Pageable pageable
+    ) {
+        // Recherche textuelle via l'index inversé plutôt que LIKE '%...%' sur la table
+        if (recherche != null && !recherche.isBlank() && searchIndex.isReady()
+                && !IncidentSearchIndex.analyze(recherche).isEmpty()) {
+            return searchIncidentsWithIndex(statut, categorie, quartierId, departementId,
+                    dateDebut, dateFin, recherche, pageable);
         }
+        return incidentRepository.findAll(IncidentSpecifications.search(
+                statut, categorie, quartierId, departementId,
+                dateDebut, dateFin, recherche
+        ), pageable);
     }
     
-    private void createNotification(User user, Incident incident, String titre, String message, 
-                                    Notification.TypeNotification type) {
-        Notification notification = new Notification();
-        notification.setUser(user);
-        notification.setIncident(incident);
-        notification.setTitre(titre);
-        notification.setMessage(message);
-        notification.setType(type);
-        notification.setLu(false);
-        notificationRepository.save(notification);
+    private Page<Incident> searchIncidentsWithIndex(
+            StatutIncident statut,
+            CategorieIncident categorie,
+            Long quartierId,
+            Long departementId,
+            LocalDateTime dateDebut,
+            LocalDateTime dateFin,
+            String recherche,
+            Pageable pageable
+    ) {
+        Sort.Order createdAtOrder = pageable.getSort().getOrderFor("createdAt");
+        boolean sortedByCreatedAt = pageable.getSort().isUnsorted()
+                || (createdAtOrder != null && pageable.getSort().stream().count() == 1);
+        boolean ascending = createdAtOrder != null && createdAtOrder.isAscending();
+        
+        // Autre tri demandé : la base trie les identifiants retenus par l'index, dans la limite
+        // de maxSortedIds ; au-delà, la clause IN serait plus coûteuse que la requête directe
+        if (!sortedByCreatedAt) {
+            IncidentSearchIndex.SearchPage candidates = searchIndex.search(recherche, statut, categorie,
+                    quartierId, departementId, dateDebut, dateFin, ascending, null, null, 0, maxSortedIds, false);
+            if (candidates.hasNext()) {
+                return incidentRepository.findAll(IncidentSpecifications.search(
+                        statut, categorie, quartierId, departementId,
+                        dateDebut, dateFin, recherche
+                ), pageable);
+            }
+            List<Long> ids = candidates.ids();
+            return ids.isEmpty() ? Page.empty(pageable) : incidentRepository.findByIdIn(ids, pageable);
+        }
+        
+        // Tri par date : l'index fournit la page dans l'ordre et compte le total sans le conserver
+        IncidentSearchIndex.SearchPage page = searchIndex.search(recherche, statut, categorie, quartierId,
+                departementId, dateDebut, dateFin, ascending, null, null,
+                pageable.getOffset(), pageable.getPageSize(), true);
+        return new PageImpl<>(loadInOrder(page.ids()), pageable, page.total());
     }
 }
-
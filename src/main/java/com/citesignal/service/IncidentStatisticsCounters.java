@@ -0,0 +1,334 @@
+package com.citesignal.service;
+
+import com.citesignal.model.CategorieIncident;
+import com.citesignal.model.Incident;
+import com.citesignal.model.StatutIncident;
+import com.citesignal.repository.IncidentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Compteurs d'incidents maintenus en mémoire (mode "memory" de StatisticsService). Alimentés
+// par le cycle de vie des incidents après commit, et réconciliés périodiquement avec la base
+// de données. Une réconciliation bloque les validations qui modifient les compteurs : une
+// transaction validée avant la lecture de la base y est comptée et a déjà appliqué son
+// incrément, une transaction validée après l'applique sur les valeurs recalées.
+@Component
+public class IncidentStatisticsCounters {
+    
+    private static final Logger logger = LoggerFactory.getLogger(IncidentStatisticsCounters.class);
+    
+    static final int RECENT_DAYS = 30;
+    
+    @Autowired
+    private IncidentRepository incidentRepository;
+    
+    @Value("${app.statistics.mode:database}")
+    private String mode;
+    
+    private final Map<StatutIncident, LongAdder> byStatut = new EnumMap<>(StatutIncident.class);
+    private final Map<CategorieIncident, LongAdder> byCategorie = new EnumMap<>(CategorieIncident.class);
+    private final Map<String, LongAdder> byQuartier = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> byDepartement = new ConcurrentHashMap<>();
+    private final LongAdder recent = new LongAdder();
+    private final LongAdder resolvedRecent = new LongAdder();
+    
+    // Partagé par les transactions entre le début du commit et l'application de l'incrément,
+    // exclusif pendant la réconciliation
+    private final ReentrantReadWriteLock reconciliationLock = new ReentrantReadWriteLock();
+    
+    private final AtomicLong lastDrift = new AtomicLong();
+    private volatile LocalDateTime lastReconciliation;
+    
+    public IncidentStatisticsCounters() {
+        for (StatutIncident statut : StatutIncident.values()) {
+            byStatut.put(statut, new LongAdder());
+        }
+        for (CategorieIncident categorie : CategorieIncident.values()) {
+            byCategorie.put(categorie, new LongAdder());
+        }
+    }
+    
+    public boolean isEnabled() {
+        return "memory".equalsIgnoreCase(mode);
+    }
+    
+    public boolean isReady() {
+        return isEnabled() && lastReconciliation != null;
+    }
+    
+    // Classification d'un incident prise au moment de l'appel (les relations paresseuses doivent
+    // être lues dans la transaction).
+    public record Snapshot(StatutIncident statut, CategorieIncident categorie,
+                           String quartier, String departement, LocalDateTime createdAt) {
+        
+        public static Snapshot of(Incident incident) {
+            return new Snapshot(
+                    incident.getStatut(),
+                    incident.getCategorie(),
+                    incident.getQuartier() != null ? incident.getQuartier().getNom() : null,
+                    incident.getDepartement() != null ? incident.getDepartement().getNom() : null,
+                    incident.getCreatedAt()
+            );
+        }
+    }
+    
+    public void recordCreated(Incident incident) {
+        if (!isEnabled()) {
+            return;
+        }
+        Snapshot snapshot = Snapshot.of(incident);
+        afterCommit(() -> {
+            byStatut.get(snapshot.statut()).increment();
+            byCategorie.get(snapshot.categorie()).increment();
+            add(byQuartier, snapshot.quartier(), 1);
+            add(byDepartement, snapshot.departement(), 1);
+            recent.increment();
+            if (isResolved(snapshot.statut())) {
+                resolvedRecent.increment();
+            }
+        });
+    }
+    
+    public void recordStatusChange(Incident incident, StatutIncident oldStatut, StatutIncident newStatut) {
+        if (!isEnabled() || oldStatut == newStatut) {
+            return;
+        }
+        boolean recentIncident = isRecent(incident.getCreatedAt());
+        afterCommit(() -> {
+            byStatut.get(oldStatut).decrement();
+            byStatut.get(newStatut).increment();
+            if (recentIncident && isResolved(oldStatut) != isResolved(newStatut)) {
+                resolvedRecent.add(isResolved(newStatut) ? 1 : -1);
+            }
+        });
+    }
+    
+    // Répercute les changements de catégorie, quartier ou département. Le statut est suivi
+    // séparément par recordStatusChange.
+    public void recordClassificationChange(Snapshot before, Incident incident) {
+        if (!isEnabled()) {
+            return;
+        }
+        Snapshot after = Snapshot.of(incident);
+        afterCommit(() -> {
+            if (before.categorie() != after.categorie()) {
+                byCategorie.get(before.categorie()).decrement();
+                byCategorie.get(after.categorie()).increment();
+            }
+            if (!Objects.equals(before.quartier(), after.quartier())) {
+                add(byQuartier, before.quartier(), -1);
+                add(byQuartier, after.quartier(), 1);
+            }
+            if (!Objects.equals(before.departement(), after.departement())) {
+                add(byDepartement, before.departement(), -1);
+                add(byDepartement, after.departement(), 1);
+            }
+        });
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        reconcile();
+    }
+    
+    // Recharge les compteurs depuis la base et mesure l'écart accumulé (somme des différences
+    // absolues sur tous les compteurs).
+    @Scheduled(fixedDelayString = "${app.statistics.reconciliation-interval-ms:300000}",
+               initialDelayString = "${app.statistics.reconciliation-interval-ms:300000}")
+    public void reconcile() {
+        if (!isEnabled()) {
+            return;
+        }
+        reconciliationLock.writeLock().lock();
+        try {
+            long[] statutCounts = new long[StatutIncident.values().length];
+            long[] categorieCounts = new long[CategorieIncident.values().length];
+            long recentCount = 0;
+            long resolvedRecentCount = 0;
+            
+            LocalDateTime depuis = LocalDateTime.now().minusDays(RECENT_DAYS);
+            for (Object[] row : incidentRepository.aggregateByStatutAndCategorie(depuis)) {
+                StatutIncident statut = (StatutIncident) row[0];
+                long count = ((Number) row[2]).longValue();
+                long recentRow = row[3] != null ? ((Number) row[3]).longValue() : 0L;
+                statutCounts[statut.ordinal()] += count;
+                categorieCounts[((CategorieIncident) row[1]).ordinal()] += count;
+                recentCount += recentRow;
+                if (isResolved(statut)) {
+                    resolvedRecentCount += recentRow;
+                }
+            }
+            
+            long drift = 0;
+            for (StatutIncident statut : StatutIncident.values()) {
+                drift += reset(byStatut.get(statut), statutCounts[statut.ordinal()]);
+            }
+            for (CategorieIncident categorie : CategorieIncident.values()) {
+                drift += reset(byCategorie.get(categorie), categorieCounts[categorie.ordinal()]);
+            }
+            drift += resetAll(byQuartier, incidentRepository.countIncidentsByQuartier());
+            drift += resetAll(byDepartement, incidentRepository.countIncidentsByDepartement());
+            // Les compteurs sur 30 jours glissent avec le temps : ils sont recalés
+            // sans être comptés dans l'écart
+            reset(recent, recentCount);
+            reset(resolvedRecent, resolvedRecentCount);
+            
+            lastDrift.set(drift);
+            lastReconciliation = LocalDateTime.now();
+            if (drift > 0) {
+                logger.warn("Compteurs statistiques réconciliés, écart constaté: {}", drift);
+            } else {
+                logger.debug("Compteurs statistiques réconciliés sans écart");
+            }
+        } catch (Exception e) {
+            logger.error("Erreur lors de la réconciliation des compteurs statistiques", e);
+        } finally {
+            reconciliationLock.writeLock().unlock();
+        }
+    }
+    
+    public Map<String, Long> getIncidentsByStatus() {
+        Map<String, Long> result = new HashMap<>();
+        byStatut.forEach((statut, adder) -> result.put(statut.name(), adder.sum()));
+        return result;
+    }
+    
+    public Map<String, Long> getIncidentsByCategory() {
+        Map<String, Long> result = new HashMap<>();
+        byCategorie.forEach((categorie, adder) -> result.put(categorie.name(), adder.sum()));
+        return result;
+    }
+    
+    public Map<String, Long> getIncidentsByQuartier() {
+        return snapshot(byQuartier);
+    }
+    
+    public Map<String, Long> getIncidentsByDepartement() {
+        return snapshot(byDepartement);
+    }
+    
+    public long getTotalIncidents() {
+        return byStatut.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+    
+    public long getRecentIncidents() {
+        return recent.sum();
+    }
+    
+    public long getResolvedRecentIncidents() {
+        return resolvedRecent.sum();
+    }
+    
+    public long getLastDrift() {
+        return lastDrift.get();
+    }
+    
+    public LocalDateTime getLastReconciliation() {
+        return lastReconciliation;
+    }
+    
+    private static boolean isResolved(StatutIncident statut) {
+        return statut == StatutIncident.RESOLU || statut == StatutIncident.CLOTURE;
+    }
+    
+    private static boolean isRecent(LocalDateTime createdAt) {
+        return createdAt != null && !createdAt.isBefore(LocalDateTime.now().minusDays(RECENT_DAYS));
+    }
+    
+    // Applique l'incrément après commit. Le verrou partagé est pris avant le commit et rendu
+    // une fois l'incrément appliqué : la réconciliation ne peut pas lire la base entre les deux.
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            reconciliationLock.readLock().lock();
+            try {
+                action.run();
+            } finally {
+                reconciliationLock.readLock().unlock();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean locked;
+            
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                reconciliationLock.readLock().lock();
+                locked = true;
+            }
+            
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+            
+            @Override
+            public void afterCompletion(int status) {
+                if (locked) {
+                    locked = false;
+                    reconciliationLock.readLock().unlock();
+                }
+            }
+        });
+    }
+    
+    private static void add(Map<String, LongAdder> counters, String key, long delta) {
+        if (key != null) {
+            counters.computeIfAbsent(key, k -> new LongAdder()).add(delta);
+        }
+    }
+    
+    // Correction par différence : une lecture concurrente ne voit jamais le compteur à zéro
+    private static long reset(LongAdder adder, long value) {
+        long delta = value - adder.sum();
+        adder.add(delta);
+        return Math.abs(delta);
+    }
+    
+    private static long resetAll(Map<String, LongAdder> counters, List<Object[]> rows) {
+        long drift = 0;
+        Map<String, Long> expected = new HashMap<>();
+        for (Object[] row : rows) {
+            expected.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            if (!expected.containsKey(entry.getKey())) {
+                drift += reset(entry.getValue(), 0);
+            }
+        }
+        for (Map.Entry<String, Long> entry : expected.entrySet()) {
+            drift += reset(counters.computeIfAbsent(entry.getKey(), k -> new LongAdder()), entry.getValue());
+        }
+        counters.values().removeIf(adder -> adder.sum() == 0);
+        return drift;
+    }
+    
+    private static Map<String, Long> snapshot(Map<String, LongAdder> counters) {
+        Map<String, Long> result = new HashMap<>();
+        counters.forEach((key, adder) -> {
+            long value = adder.sum();
+            if (value > 0) {
+                result.put(key, value);
+            }
+        });
+        return result;
+    }
+}
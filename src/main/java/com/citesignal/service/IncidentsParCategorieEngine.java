@@ -0,0 +1,42 @@
+package com.citesignal.service;
+
+import com.citesignal.dto.RapportContent;
+import com.citesignal.dto.RapportTable;
+import com.citesignal.model.CategorieIncident;
+import com.citesignal.model.TypeRapport;
+import com.citesignal.repository.IncidentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+// Agrégats par catégorie, calculés par la base en une requête GROUP BY
+@Component
+public class IncidentsParCategorieEngine implements RapportEngine {
+
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    @Override
+    public TypeRapport getType() {
+        return TypeRapport.INCIDENTS_PAR_CATEGORIE;
+    }
+
+    @Override
+    public RapportContent build(LocalDate dateDebut, LocalDate dateFin) {
+        RapportContent content = new RapportContent();
+        content.setTitre("RAPPORT DES INCIDENTS PAR CATÉGORIE");
+
+        RapportTable table = new RapportTable("INCIDENTS PAR CATÉGORIE", "Catégorie", "Incidents", "Résolus",
+                "Taux de résolution (%)", "Note moyenne", "Nombre de notes");
+        long total = RapportEngine.ajouterAgregats(content, table,
+                incidentRepository.aggregatePeriodByCategorie(RapportEngine.debut(dateDebut),
+                        RapportEngine.fin(dateFin), RESOLUS),
+                categorie -> categorie != null ? ((CategorieIncident) categorie).name() : "Non spécifiée");
+
+        content.getIndicateurs().put("Incidents de la période", total);
+        content.getIndicateurs().put("Catégories concernées", table.getLignes().size());
+        content.setNombreIncidents(total);
+        return content;
+    }
+}
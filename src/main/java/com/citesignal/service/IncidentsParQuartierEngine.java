@@ -0,0 +1,41 @@
+package com.citesignal.service;
+
+import com.citesignal.dto.RapportContent;
+import com.citesignal.dto.RapportTable;
+import com.citesignal.model.TypeRapport;
+import com.citesignal.repository.IncidentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+// Agrégats par quartier, calculés par la base en une requête GROUP BY
+@Component
+public class IncidentsParQuartierEngine implements RapportEngine {
+
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    @Override
+    public TypeRapport getType() {
+        return TypeRapport.INCIDENTS_PAR_QUARTIER;
+    }
+
+    @Override
+    public RapportContent build(LocalDate dateDebut, LocalDate dateFin) {
+        RapportContent content = new RapportContent();
+        content.setTitre("RAPPORT DES INCIDENTS PAR QUARTIER");
+
+        RapportTable table = new RapportTable("INCIDENTS PAR QUARTIER", "Quartier", "Incidents", "Résolus",
+                "Taux de résolution (%)", "Note moyenne", "Nombre de notes");
+        long total = RapportEngine.ajouterAgregats(content, table,
+                incidentRepository.aggregatePeriodByQuartier(RapportEngine.debut(dateDebut),
+                        RapportEngine.fin(dateFin), RESOLUS),
+                quartier -> quartier != null ? (String) quartier : "Non spécifié");
+
+        content.getIndicateurs().put("Incidents de la période", total);
+        content.getIndicateurs().put("Quartiers concernés", table.getLignes().size());
+        content.setNombreIncidents(total);
+        return content;
+    }
+}
@@ -0,0 +1,77 @@
+package com.citesignal.service;
+
+import com.citesignal.repository.NotificationRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Archivage des notifications lues au-delà de la durée de rétention : chaque lot est copié dans
+// notifications_archive puis supprimé de la table principale dans une même transaction courte.
+@Service
+public class NotificationArchiveService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationArchiveService.class);
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.notifications.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.notifications.archive.retention-days:90}")
+    private int retentionDays;
+
+    @Value("${app.notifications.archive.batch-size:1000}")
+    private int batchSize;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(cron = "${app.notifications.archive.cron:0 30 3 * * *}")
+    public void archiveScheduled() {
+        if (enabled) {
+            archiveReadNotifications();
+        }
+    }
+
+    public int archiveReadNotifications() {
+        LocalDateTime avant = LocalDateTime.now().minusDays(retentionDays);
+        int total = 0;
+        int moved;
+        do {
+            moved = transactionTemplate.execute(status -> archiveBatch(avant));
+            total += moved;
+        } while (moved == batchSize);
+
+        if (total > 0) {
+            logger.info("{} notifications lues archivées (antérieures au {})", total, avant.toLocalDate());
+        }
+        return total;
+    }
+
+    private int archiveBatch(LocalDateTime avant) {
+        List<Long> ids = notificationRepository.findReadIdsBefore(avant, PageRequest.of(0, batchSize));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        notificationRepository.copyToArchive(ids, LocalDateTime.now());
+        return notificationRepository.deleteByIds(ids);
+    }
+}
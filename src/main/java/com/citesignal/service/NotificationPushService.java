@@ -0,0 +1,90 @@
+package com.citesignal.service;
+
+import com.citesignal.dto.NotificationPush;
+import com.citesignal.model.Notification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.user.SimpUserRegistry;
+import org.springframework.stereotype.Service;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.messaging.SessionDisconnectEvent;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Diffusion des notifications aux sessions WebSocket de leur destinataire. Le registre des
+// utilisateurs connectés évite tout envoi vers un utilisateur hors ligne : il retrouvera la
+// notification en base au prochain affichage.
+@Service
+public class NotificationPushService {
+
+    public static final String DESTINATION = "/queue/notifications";
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationPushService.class);
+
+    @Autowired
+    private SimpMessagingTemplate messagingTemplate;
+
+    @Autowired
+    private SimpUserRegistry userRegistry;
+
+    // Métriques
+    private final AtomicLong pushedCount = new AtomicLong();
+    private final AtomicLong offlineCount = new AtomicLong();
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final AtomicLong evictedCount = new AtomicLong();
+
+    // Envoi après le commit, pour ne jamais pousser une notification annulée
+    public void pushAfterCommit(String email, Notification notification) {
+        if (email == null) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() -> push(email, NotificationPush.from(notification)));
+    }
+
+    public void push(String email, NotificationPush payload) {
+        if (userRegistry.getUser(email) == null) {
+            offlineCount.incrementAndGet();
+            return;
+        }
+        try {
+            messagingTemplate.convertAndSendToUser(email, DESTINATION, payload);
+            pushedCount.incrementAndGet();
+        } catch (MessagingException e) {
+            // File sortante saturée : la notification reste consultable en base
+            droppedCount.incrementAndGet();
+            logger.warn("Notification {} non poussée à {}: {}", payload.getId(), email, e.getMessage());
+        }
+    }
+
+    @EventListener
+    public void onDisconnect(SessionDisconnectEvent event) {
+        if (CloseStatus.SESSION_NOT_RELIABLE.equals(event.getCloseStatus())) {
+            evictedCount.incrementAndGet();
+            logger.info("Session WebSocket {} fermée : client trop lent", event.getSessionId());
+        }
+    }
+
+    public int getConnectedUserCount() {
+        return userRegistry.getUserCount();
+    }
+
+    public long getPushedCount() {
+        return pushedCount.get();
+    }
+
+    public long getOfflineCount() {
+        return offlineCount.get();
+    }
+
+    public long getDroppedCount() {
+        return droppedCount.get();
+    }
+
+    public long getEvictedCount() {
+        return evictedCount.get();
+    }
+}
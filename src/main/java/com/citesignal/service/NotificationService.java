@@ -1,9 +1,7 @@
 package com.citesignal.service;
 
 import com.citesignal.model.Notification;
-import com.citesignal.model.User;
 import com.citesignal.repository.NotificationRepository;
-import com.citesignal.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -19,24 +17,25 @@ public class NotificationService {
     private NotificationRepository notificationRepository;
     
     @Autowired
-    private UserRepository userRepository;
+    private UnreadNotificationCounter unreadCounter;
     
     public Page<Notification> getNotificationsByUser(Long userId, Pageable pageable) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
-        return notificationRepository.findByUser(user, pageable);
+        return notificationRepository.findByUserId(userId, pageable);
     }
     
     public List<Notification> getUnreadNotificationsByUser(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
-        return notificationRepository.findByUserAndLu(user, false);
+        return notificationRepository.findByUserIdAndLu(userId, false);
     }
     
+    // Lecture en mémoire, sans requête une fois le compteur chargé
     public Long countUnreadNotifications(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
-        return notificationRepository.countByUserAndLu(user, false);
+        return unreadCounter.get(userId);
+    }
+    
+    // Compteur global consulté d'abord : aucune requête pour un utilisateur sans notification non lue
+    public boolean hasUnreadNotificationsForIncident(Long userId, Long incidentId) {
+        return countUnreadNotifications(userId) > 0
+                && notificationRepository.existsByUserIdAndIncidentIdAndLuFalse(userId, incidentId);
     }
     
     @Transactional
@@ -48,17 +47,25 @@ public class NotificationService {
             throw new RuntimeException("Vous n'êtes pas autorisé à modifier cette notification");
         }
         
-        notification.setLu(true);
-        notificationRepository.save(notification);
+        if (!Boolean.TRUE.equals(notification.getLu())) {
+            notification.setLu(true);
+            notificationRepository.save(notification);
+            unreadCounter.decrementAfterCommit(userId, 1);
+        }
     }
     
+    // Une seule requête UPDATE, quel que soit le nombre de notifications non lues
     @Transactional
-    public void markAllAsRead(Long userId) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("Utilisateur introuvable"));
-        List<Notification> unreadNotifications = notificationRepository.findByUserAndLu(user, false);
-        unreadNotifications.forEach(n -> n.setLu(true));
-        notificationRepository.saveAll(unreadNotifications);
+    public int markAllAsRead(Long userId) {
+        int updated = notificationRepository.markAllAsReadByUserId(userId);
+        unreadCounter.resetAfterCommit(userId);
+        return updated;
+    }
+    
+    @Transactional
+    public int markAsReadForIncident(Long userId, Long incidentId) {
+        int updated = notificationRepository.markAsReadByUserIdAndIncidentId(userId, incidentId);
+        unreadCounter.decrementAfterCommit(userId, updated);
+        return updated;
     }
 }
-
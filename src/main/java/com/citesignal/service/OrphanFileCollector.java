@@ -0,0 +1,147 @@
+package com.citesignal.service;
+
+import com.citesignal.repository.PhotoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Ramasse-miettes du répertoire d'upload : un fichier n'est supprimé que lorsqu'aucune photo ne
+// le référence plus (suppression d'incident ou de photo, transaction annulée) et qu'il n'a pas été
+// écrit ou réutilisé depuis le délai de grâce, ce qui couvre les uploads en cours d'enregistrement.
+// Seuls les fichiers de photos sont examinés : racine, shards xx/yy et fichiers temporaires.
+@Service
+public class OrphanFileCollector {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrphanFileCollector.class);
+
+    // Répertoires créés par FileStorageService pour les fichiers adressés par contenu
+    private static final Pattern SHARD = Pattern.compile("[0-9a-f]{2}");
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Value("${app.upload.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.upload.gc.grace-minutes:60}")
+    private long graceMinutes;
+
+    @Value("${app.upload.gc.batch-size:500}")
+    private int batchSize;
+
+    @Scheduled(cron = "${app.upload.gc.cron:0 15 4 * * *}")
+    public void collectScheduled() {
+        if (enabled) {
+            collect();
+        }
+    }
+
+    public int collect() {
+        Path root = fileStorageService.getRootPath();
+        Instant limit = Instant.now().minus(graceMinutes, ChronoUnit.MINUTES);
+        int deleted = 0;
+
+        try {
+            // Écritures interrompues (arrêt du serveur pendant un upload)
+            for (Path file : list(fileStorageService.getTempPath(), Files::isRegularFile)) {
+                if (isOlderThan(file, limit) && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+
+            // Photos historiques à la racine, puis répertoires de shard xx/yy ; les autres
+            // sous-répertoires (anciens rapports notamment) ne sont jamais parcourus
+            Map<String, Path> batch = new LinkedHashMap<>();
+            for (Path file : list(root, Files::isRegularFile)) {
+                deleted += add(batch, root, file, limit);
+            }
+            for (Path shard : list(root, OrphanFileCollector::isShard)) {
+                for (Path subShard : list(shard, OrphanFileCollector::isShard)) {
+                    for (Path file : list(subShard, Files::isRegularFile)) {
+                        deleted += add(batch, root, file, limit);
+                    }
+                }
+            }
+            deleted += deleteUnreferenced(batch, limit);
+        } catch (IOException e) {
+            logger.error("Erreur lors du nettoyage du répertoire d'upload", e);
+        }
+
+        if (deleted > 0) {
+            logger.info("{} fichiers orphelins supprimés du répertoire d'upload", deleted);
+        }
+        return deleted;
+    }
+
+    // Ajoute le fichier au lot, vérifié en base dès qu'il est plein
+    private int add(Map<String, Path> batch, Path root, Path file, Instant limit) throws IOException {
+        String relative = root.relativize(file).toString().replace('\\', '/');
+        batch.put(fileStorageService.getFileUrl(relative), file);
+        if (batch.size() < batchSize) {
+            return 0;
+        }
+        int deleted = deleteUnreferenced(batch, limit);
+        batch.clear();
+        return deleted;
+    }
+
+    private static boolean isShard(Path path) {
+        return Files.isDirectory(path) && SHARD.matcher(path.getFileName().toString()).matches();
+    }
+
+    private static List<Path> list(Path directory, Predicate<Path> filter) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> entries = Files.list(directory)) {
+            return entries.filter(filter).toList();
+        }
+    }
+
+    private int deleteUnreferenced(Map<String, Path> batch, Instant limit) throws IOException {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Set<String> referenced = new HashSet<>();
+        for (Object[] row : photoRepository.findReferencedChemins(new ArrayList<>(batch.keySet()))) {
+            for (Object chemin : row) {
+                if (chemin != null) {
+                    referenced.add((String) chemin);
+                }
+            }
+        }
+        int deleted = 0;
+        for (Map.Entry<String, Path> entry : batch.entrySet()) {
+            Path file = entry.getValue();
+            if (!referenced.contains(entry.getKey()) && isOlderThan(file, limit) && Files.deleteIfExists(file)) {
+                deleted++;
+            }
+        }
+        return deleted;
+    }
+
+    private static boolean isOlderThan(Path file, Instant limit) throws IOException {
+        return Files.getLastModifiedTime(file).toInstant().isBefore(limit);
+    }
+}
@@ -0,0 +1,52 @@
+package com.citesignal.service;
+
+import com.citesignal.dto.RapportContent;
+import com.citesignal.dto.RapportTable;
+import com.citesignal.model.TypeRapport;
+import com.citesignal.repository.IncidentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+// Incidents assignés, résolus, délai moyen et satisfaction par agent, calculés par la base
+@Component
+public class PerformanceAgentsEngine implements RapportEngine {
+
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    @Override
+    public TypeRapport getType() {
+        return TypeRapport.PERFORMANCE_AGENTS;
+    }
+
+    @Override
+    public RapportContent build(LocalDate dateDebut, LocalDate dateFin) {
+        RapportContent content = new RapportContent();
+        content.setTitre("RAPPORT DE PERFORMANCE DES AGENTS");
+
+        RapportTable table = new RapportTable("PERFORMANCE PAR AGENT", "Agent", "Incidents assignés", "Résolus",
+                "Taux de résolution (%)", "Délai moyen de résolution (heures)", "Note moyenne", "Nombre de notes");
+        long assignes = 0;
+        long resolus = 0;
+        for (Object[] row : incidentRepository.aggregatePeriodByAgent(RapportEngine.debut(dateDebut),
+                RapportEngine.fin(dateFin), RESOLUS)) {
+            long incidents = ((Number) row[1]).longValue();
+            long resolusAgent = row[2] != null ? ((Number) row[2]).longValue() : 0;
+            Double delai = row[5] != null ? Math.round(((Number) row[5]).doubleValue() / 360.0) / 10.0 : null;
+            table.ajouterLigne(row[0], incidents, resolusAgent, RapportEngine.taux(resolusAgent, incidents),
+                    delai, RapportEngine.arrondi(row[3]), ((Number) row[4]).longValue());
+            assignes += incidents;
+            resolus += resolusAgent;
+        }
+        content.getTables().add(table);
+
+        content.getIndicateurs().put("Agents actifs", table.getLignes().size());
+        content.getIndicateurs().put("Incidents assignés", assignes);
+        content.getIndicateurs().put("Incidents résolus", resolus);
+        content.getIndicateurs().put("Taux de résolution (%)", RapportEngine.taux(resolus, assignes));
+        content.setNombreIncidents(assignes);
+        return content;
+    }
+}
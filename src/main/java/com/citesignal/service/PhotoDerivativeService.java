@@ -0,0 +1,244 @@
+package com.citesignal.service;
+
+import com.citesignal.repository.PhotoRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Génération des versions réduites des photos (miniature pour les listes, taille moyenne pour
+// l'affichage détaillé). Les photos sans miniature servent de file d'attente : le traitement
+// est relancé après chaque enregistrement de photos et reprend périodiquement les restantes.
+@Service
+public class PhotoDerivativeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PhotoDerivativeService.class);
+
+    @Autowired
+    private PhotoRepository photoRepository;
+
+    @Autowired
+    private FileStorageService fileStorageService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.upload.derivatives.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.upload.derivatives.thumbnail-size:320}")
+    private int thumbnailSize;
+
+    @Value("${app.upload.derivatives.medium-size:1024}")
+    private int mediumSize;
+
+    @Value("${app.upload.derivatives.jpeg-quality:0.8}")
+    private float jpegQuality;
+
+    @Value("${app.upload.derivatives.batch-size:50}")
+    private int batchSize;
+
+    private TransactionTemplate transactionTemplate;
+    // Un seul thread : le décodage d'une grande photo occupe beaucoup de mémoire
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "photo-derivatives");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean processing = new AtomicBoolean(false);
+    private final AtomicBoolean wakeRequested = new AtomicBoolean(false);
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        ImageIO.setUseCache(false);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        wake();
+    }
+
+    @Scheduled(fixedDelayString = "${app.upload.derivatives.poll-interval-ms:300000}")
+    public void poll() {
+        wake();
+    }
+
+    public void wake() {
+        if (!enabled) {
+            return;
+        }
+        wakeRequested.set(true);
+        if (!worker.isShutdown() && processing.compareAndSet(false, true)) {
+            worker.submit(this::processPending);
+        }
+    }
+
+    private void processPending() {
+        try {
+            while (wakeRequested.getAndSet(false)) {
+                List<String> chemins;
+                do {
+                    chemins = photoRepository.findCheminsWithoutDerivatives(PageRequest.of(0, batchSize));
+                    chemins.forEach(this::generate);
+                } while (chemins.size() == batchSize);
+            }
+        } catch (Exception e) {
+            logger.error("Erreur lors de la génération des miniatures", e);
+        } finally {
+            processing.set(false);
+            if (wakeRequested.get()) {
+                wake();
+            }
+        }
+    }
+
+    private void generate(String chemin) {
+        String miniature = chemin;
+        String moyen = chemin;
+        try {
+            String filename = fileStorageService.getFilename(chemin);
+            Path source = fileStorageService.loadFile(filename);
+            String base = filename.contains(".") ? filename.substring(0, filename.lastIndexOf('.')) : filename;
+            String thumbnailName = base + "_" + thumbnailSize + ".jpg";
+            String mediumName = base + "_" + mediumSize + ".jpg";
+
+            if (Files.exists(source)) {
+                // Fichier partagé dont les versions réduites existent déjà
+                boolean thumbnailExists = Files.exists(fileStorageService.loadFile(thumbnailName));
+                boolean mediumExists = Files.exists(fileStorageService.loadFile(mediumName));
+                if (thumbnailExists && mediumExists) {
+                    miniature = fileStorageService.getFileUrl(thumbnailName);
+                    moyen = fileStorageService.getFileUrl(mediumName);
+                } else {
+                    String[] urls = resize(source, thumbnailName, mediumName);
+                    miniature = urls[0] != null ? urls[0] : chemin;
+                    moyen = urls[1] != null ? urls[1] : chemin;
+                }
+            } else {
+                logger.warn("Photo introuvable sur disque, pas de miniature: {}", chemin);
+            }
+        } catch (Exception e) {
+            // L'original sera affiché à la place ; la photo n'est pas retraitée
+            logger.warn("Miniatures impossibles à générer pour {}: {}", chemin, e.getMessage());
+        }
+
+        String finalMiniature = miniature;
+        String finalMoyen = moyen;
+        transactionTemplate.executeWithoutResult(status ->
+                photoRepository.updateDerivatives(chemin, finalMiniature, finalMoyen));
+    }
+
+    // Retourne les URL [miniature, moyen] ; null lorsque l'original est déjà assez petit
+    private String[] resize(Path source, String thumbnailName, String mediumName) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(source.toFile())) {
+            Iterator<ImageReader> readers = input != null ? ImageIO.getImageReaders(input) : null;
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Format d'image non supporté");
+            }
+            ImageReader reader = readers.next();
+            BufferedImage image;
+            int longest;
+            try {
+                reader.setInput(input, true, true);
+                longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                // Décodage sous-échantillonné : une photo de 4000 px n'est jamais chargée en entier
+                ImageReadParam param = reader.getDefaultReadParam();
+                int step = Math.max(1, longest / (mediumSize * 2));
+                param.setSourceSubsampling(step, step, 0, 0);
+                image = reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+
+            String[] urls = new String[2];
+            BufferedImage medium = image;
+            if (longest > mediumSize) {
+                medium = scale(image, mediumSize);
+                write(medium, mediumName);
+                urls[1] = fileStorageService.getFileUrl(mediumName);
+            }
+            if (longest > thumbnailSize) {
+                write(scale(medium, thumbnailSize), thumbnailName);
+                urls[0] = fileStorageService.getFileUrl(thumbnailName);
+            }
+            return urls;
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage image, int maxSize) {
+        double ratio = Math.min(1.0, (double) maxSize / Math.max(image.getWidth(), image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+        // Fond blanc : le JPEG ne gère pas la transparence des PNG/GIF
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = scaled.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return scaled;
+    }
+
+    private void write(BufferedImage image, String filename) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(jpegQuality);
+        param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+
+        Path tempFile = fileStorageService.createTempFile();
+        try {
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(tempFile.toFile())) {
+                writer.setOutput(output);
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+            fileStorageService.moveIntoPlace(tempFile, filename);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdownNow();
+    }
+}
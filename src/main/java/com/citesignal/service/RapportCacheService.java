@@ -0,0 +1,156 @@
+package com.citesignal.service;
+
+import com.citesignal.model.FormatExport;
+import com.citesignal.model.Rapport;
+import com.citesignal.model.Rapport.StatutGeneration;
+import com.citesignal.model.TypeRapport;
+import com.citesignal.repository.IncidentRepository;
+import com.citesignal.repository.RapportRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// Cache des rapports générés : un rapport terminé est réutilisé tant que les incidents de sa période
+// n'ont pas changé depuis sa génération (même filigrane). Les fichiers sont supprimés au-delà d'une durée
+// sans utilisation ou lorsque l'ensemble dépasse le budget disque, les moins récents d'abord ;
+// le rapport reste dans l'historique sans fichier téléchargeable.
+@Service
+public class RapportCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RapportCacheService.class);
+
+    @Autowired
+    private RapportRepository rapportRepository;
+
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${app.reports.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.reports.cache.max-age-days:30}")
+    private long maxAgeDays;
+
+    @Value("${app.reports.cache.max-size-mb:1024}")
+    private long maxSizeMb;
+
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // Dernière modification et nombre d'incidents de la période : le nombre détecte les suppressions
+    public String calculerFiligrane(LocalDate dateDebut, LocalDate dateFin) {
+        List<Object[]> rows = incidentRepository.findDataWatermark(dateDebut.atStartOfDay(), dateFin.atTime(23, 59, 59));
+        if (rows.isEmpty()) {
+            return "null|0";
+        }
+        // Une modification porte la date la plus récente : seul le maximum est conservé pour
+        // rester dans la taille de la colonne
+        Object[] row = rows.get(0);
+        LocalDateTime derniere = (LocalDateTime) row[0];
+        for (int i = 2; i < row.length; i++) {
+            LocalDateTime date = (LocalDateTime) row[i];
+            if (date != null && (derniere == null || date.isAfter(derniere))) {
+                derniere = date;
+            }
+        }
+        return derniere + "|" + row[1];
+    }
+
+    // Retourne le rapport déjà généré sur les données actuelles, ou null
+    public Rapport findCached(TypeRapport type, LocalDate dateDebut, LocalDate dateFin, FormatExport format) {
+        if (!enabled) {
+            return null;
+        }
+        String filigrane = calculerFiligrane(dateDebut, dateFin);
+        for (Rapport rapport : rapportRepository.findCached(type, dateDebut, dateFin, format, filigrane,
+                StatutGeneration.TERMINE)) {
+            Path file = Paths.get(rapport.getFichierChemin());
+            if (Files.isRegularFile(file)) {
+                try {
+                    // La date du fichier sert de dernière utilisation pour l'éviction
+                    Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+                } catch (IOException e) {
+                    logger.debug("Date du rapport {} non mise à jour: {}", rapport.getId(), e.getMessage());
+                }
+                return rapport;
+            }
+        }
+        return null;
+    }
+
+    @Scheduled(cron = "${app.reports.cache.cron:0 45 4 * * *}")
+    public void evictScheduled() {
+        if (enabled) {
+            evict();
+        }
+    }
+
+    public int evict() {
+        Instant limit = Instant.now().minus(maxAgeDays, ChronoUnit.DAYS);
+        long budget = maxSizeMb * 1024 * 1024;
+
+        List<StoredReport> stored = new ArrayList<>();
+        List<Long> evicted = new ArrayList<>();
+        for (Object[] row : rapportRepository.findStoredFiles(StatutGeneration.TERMINE)) {
+            Long id = (Long) row[0];
+            Path file = Paths.get((String) row[1]);
+            try {
+                stored.add(new StoredReport(id, file, Files.size(file), Files.getLastModifiedTime(file).toInstant()));
+            } catch (IOException e) {
+                // Fichier déjà absent
+                evicted.add(id);
+            }
+        }
+
+        // Du plus récemment utilisé au plus ancien : les fichiers hors budget ou trop vieux partent
+        stored.sort(Comparator.comparing(StoredReport::lastUsed).reversed());
+        long total = 0;
+        for (StoredReport report : stored) {
+            total += report.size();
+            if (total > budget || report.lastUsed().isBefore(limit)) {
+                try {
+                    Files.deleteIfExists(report.file());
+                    evicted.add(report.id());
+                    total -= report.size();
+                } catch (IOException e) {
+                    logger.warn("Impossible de supprimer le rapport {}: {}", report.file(), e.getMessage());
+                }
+            }
+        }
+
+        if (!evicted.isEmpty()) {
+            transactionTemplate.executeWithoutResult(status -> rapportRepository.clearFichierChemin(evicted));
+            logger.info("{} fichiers de rapport supprimés du cache ({} octets conservés)", evicted.size(), total);
+        }
+        return evicted.size();
+    }
+
+    private record StoredReport(Long id, Path file, long size, Instant lastUsed) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.citesignal.service;
+
+import com.citesignal.dto.RapportContent;
+import com.citesignal.dto.RapportTable;
+import com.citesignal.model.StatutIncident;
+import com.citesignal.model.TypeRapport;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+// Moteur d'un type de rapport : calcule les indicateurs et tableaux de la période, que
+// RapportService rend dans le format demandé. Les agrégats sont calculés par la base lorsque
+// c'est possible, sinon en un seul parcours des incidents (StatisticsService.scanPeriod).
+public interface RapportEngine {
+
+    Set<StatutIncident> RESOLUS = EnumSet.of(StatutIncident.RESOLU, StatutIncident.CLOTURE);
+
+    TypeRapport getType();
+
+    RapportContent build(LocalDate dateDebut, LocalDate dateFin);
+
+    static LocalDateTime debut(LocalDate dateDebut) {
+        return dateDebut.atStartOfDay();
+    }
+
+    static LocalDateTime fin(LocalDate dateFin) {
+        return dateFin.atTime(23, 59, 59);
+    }
+
+    // Tableau d'agrégats par dimension à partir des lignes (libellé, incidents, résolus, note
+    // moyenne, nombre de notes) des requêtes aggregatePeriodBy* ; retourne le total des incidents
+    static long ajouterAgregats(RapportContent content, RapportTable table, List<Object[]> rows,
+                                Function<Object, String> libelle) {
+        long total = 0;
+        for (Object[] row : rows) {
+            long incidents = ((Number) row[1]).longValue();
+            long resolus = row[2] != null ? ((Number) row[2]).longValue() : 0;
+            table.ajouterLigne(libelle.apply(row[0]), incidents, resolus, taux(resolus, incidents),
+                    arrondi(row[3]), ((Number) row[4]).longValue());
+            total += incidents;
+        }
+        content.getTables().add(table);
+        return total;
+    }
+
+    static double taux(long part, long total) {
+        return total > 0 ? Math.round((double) part / total * 1000.0) / 10.0 : 0;
+    }
+
+    static Double arrondi(Object valeur) {
+        return valeur != null ? Math.round(((Number) valeur).doubleValue() * 100.0) / 100.0 : null;
+    }
+}
@@ -0,0 +1,205 @@
+package com.citesignal.service;
+
+import com.citesignal.dto.RapportJobStatus;
+import com.citesignal.model.FormatExport;
+import com.citesignal.model.Rapport;
+import com.citesignal.model.Rapport.StatutGeneration;
+import com.citesignal.model.TypeRapport;
+import com.citesignal.model.User;
+import com.citesignal.repository.RapportRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Génération des rapports en arrière-plan : la demande enregistre le rapport en attente et
+// rend la main immédiatement, un pool borné produit les fichiers. Une demande identique à une
+// génération en cours (même type, période et format) est rattachée à celle-ci.
+@Service
+public class RapportJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RapportJobService.class);
+
+    @Autowired
+    private RapportRepository rapportRepository;
+
+    @Autowired
+    private RapportService rapportService;
+
+    @Autowired
+    private RapportCacheService rapportCacheService;
+
+    @Value("${app.reports.workers:2}")
+    private int workers;
+
+    @Value("${app.reports.queue-capacity:20}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+    // Rapport en cours de génération par clé (type, période, format)
+    private final Map<String, Long> activeJobs = new ConcurrentHashMap<>();
+    // Avancement des rapports en attente ou en cours, retiré une fois l'état final enregistré
+    private final Map<Long, RapportProgress> progressById = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "report-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    // Reprend les rapports interrompus par un arrêt du serveur
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void resumePending() {
+        List<Long> ids = rapportRepository.findIdsByStatutIn(
+                List.of(StatutGeneration.EN_ATTENTE, StatutGeneration.EN_COURS));
+        for (Long id : ids) {
+            rapportRepository.findById(id).ifPresent(rapport -> {
+                if (!activeJobs.containsKey(jobKey(rapport))) {
+                    try {
+                        enqueue(rapport);
+                    } catch (RuntimeException e) {
+                        logger.warn("Rapport {} non repris: {}", id, e.getMessage());
+                    }
+                }
+            });
+        }
+        if (!ids.isEmpty()) {
+            logger.info("{} rapports interrompus remis en génération", ids.size());
+        }
+    }
+
+    // Retourne l'identifiant du rapport qui sera produit (éventuellement déjà en cours ou déjà
+    // généré sur les mêmes données)
+    public synchronized Long submit(User user, TypeRapport type, LocalDate dateDebut, LocalDate dateFin,
+                                   FormatExport format) {
+        Long existing = activeJobs.get(jobKey(type, dateDebut, dateFin, format));
+        if (existing != null) {
+            return existing;
+        }
+        Rapport cached = rapportCacheService.findCached(type, dateDebut, dateFin, format);
+        if (cached != null) {
+            logger.debug("Rapport {} réutilisé depuis le cache", cached.getId());
+            return cached.getId();
+        }
+        if (executor.getQueue().remainingCapacity() == 0) {
+            throw new RuntimeException("Trop de rapports en cours de génération, veuillez réessayer plus tard");
+        }
+        Rapport rapport = rapportService.creerRapport(user, type, dateDebut, dateFin, format);
+        enqueue(rapport);
+        return rapport.getId();
+    }
+
+    private void enqueue(Rapport rapport) {
+        Long id = rapport.getId();
+        String key = jobKey(rapport);
+        progressById.put(id, new RapportProgress());
+        activeJobs.put(key, id);
+        try {
+            executor.execute(() -> run(id, key));
+        } catch (RejectedExecutionException e) {
+            activeJobs.remove(key, id);
+            progressById.remove(id);
+            rapport.setStatut(StatutGeneration.ECHEC);
+            rapport.setErreur("File de génération pleine");
+            rapportRepository.save(rapport);
+            throw new RuntimeException("Trop de rapports en cours de génération, veuillez réessayer plus tard");
+        }
+    }
+
+    private void run(Long id, String key) {
+        RapportProgress progress = progressById.get(id);
+        Rapport rapport = null;
+        try {
+            rapport = rapportRepository.findWithCreatedByById(id).orElse(null);
+            if (rapport == null) {
+                // Rapport supprimé avant son traitement
+                return;
+            }
+            rapport.setStatut(StatutGeneration.EN_COURS);
+            rapportRepository.save(rapport);
+
+            long start = System.currentTimeMillis();
+            rapportService.genererRapport(rapport, progress);
+            rapport.setStatut(StatutGeneration.TERMINE);
+            rapport.setErreur(null);
+            rapportRepository.save(rapport);
+            logger.info("Rapport {} généré: {} incidents, {} octets en {} ms", id,
+                    progress.getLignesTraitees(), progress.getOctetsEcrits(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            logger.error("Erreur lors de la génération du rapport {}", id, e);
+            if (rapport != null) {
+                String message = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+                rapport.setStatut(StatutGeneration.ECHEC);
+                rapport.setErreur(message.length() > 500 ? message.substring(0, 500) : message);
+                rapport.setFichierChemin(null);
+                try {
+                    rapportRepository.save(rapport);
+                } catch (Exception saveError) {
+                    logger.error("Impossible d'enregistrer l'échec du rapport {}", id, saveError);
+                }
+            }
+        } finally {
+            activeJobs.remove(key, id);
+            progressById.remove(id);
+        }
+    }
+
+    public RapportJobStatus getStatus(Long id) {
+        Rapport rapport = rapportRepository.findById(id).orElse(null);
+        if (rapport == null) {
+            return null;
+        }
+        RapportJobStatus status = new RapportJobStatus();
+        status.setId(id);
+        status.setStatut(rapport.getStatut() != null ? rapport.getStatut() : StatutGeneration.TERMINE);
+        status.setErreur(rapport.getErreur());
+
+        RapportProgress progress = progressById.get(id);
+        if (progress != null) {
+            status.setLignesTotal(progress.getLignesTotal());
+            status.setLignesTraitees(progress.getLignesTraitees());
+            status.setOctetsEcrits(progress.getOctetsEcrits());
+        } else if (rapport.getLignesTraitees() != null) {
+            status.setLignesTotal(rapport.getLignesTraitees());
+            status.setLignesTraitees(rapport.getLignesTraitees());
+            status.setOctetsEcrits(rapport.getTailleFichier() != null ? rapport.getTailleFichier() : 0);
+        }
+        if (rapport.isTermine() && rapport.getFichierChemin() != null) {
+            status.setDownloadUrl("/user/admin/reports/download/" + id);
+        }
+        return status;
+    }
+
+    private static String jobKey(Rapport rapport) {
+        return jobKey(rapport.getType(), rapport.getDateDebut(), rapport.getDateFin(), rapport.getFormatExport());
+    }
+
+    private static String jobKey(TypeRapport type, LocalDate dateDebut, LocalDate dateFin, FormatExport format) {
+        return type + "|" + dateDebut + "|" + dateFin + "|" + format;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
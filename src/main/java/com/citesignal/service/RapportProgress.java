@@ -0,0 +1,52 @@
+package com.citesignal.service;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Avancement d'une génération de rapport, mis à jour par le thread de génération et lu par
+// les requêtes de suivi
+public class RapportProgress {
+
+    private final AtomicLong lignesTotal = new AtomicLong(-1);
+    private final AtomicLong lignesTraitees = new AtomicLong();
+    private final AtomicLong octetsEcrits = new AtomicLong();
+
+    public long getLignesTotal() {
+        return lignesTotal.get();
+    }
+
+    public void setLignesTotal(long total) {
+        lignesTotal.set(total);
+    }
+
+    public long getLignesTraitees() {
+        return lignesTraitees.get();
+    }
+
+    public void ligneTraitee() {
+        lignesTraitees.incrementAndGet();
+    }
+
+    public long getOctetsEcrits() {
+        return octetsEcrits.get();
+    }
+
+    // Flux de sortie du fichier qui compte les octets réellement écrits
+    public OutputStream compter(OutputStream output) {
+        return new FilterOutputStream(output) {
+            @Override
+            public void write(int b) throws IOException {
+                out.write(b);
+                octetsEcrits.incrementAndGet();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+                octetsEcrits.addAndGet(len);
+            }
+        };
+    }
+}
@@ -1,27 +1,47 @@
 package com.citesignal.service;
 
+import com.citesignal.dto.IncidentReportRow;
+import com.citesignal.dto.RapportContent;
+import com.citesignal.dto.RapportTable;
 import com.citesignal.model.*;
 import com.citesignal.repository.RapportRepository;
 import com.citesignal.repository.IncidentRepository;
 import com.itextpdf.text.*;
 import com.itextpdf.text.pdf.*;
+import jakarta.annotation.PostConstruct;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.EnumMap;
 import java.util.List;
 import java.util.Map;
 
 @Service
 public class RapportService {
 
+    private static final DateTimeFormatter DATE = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+    private static final DateTimeFormatter DATE_HEURE = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm");
+
     @Autowired
     private RapportRepository rapportRepository;
 
@@ -29,140 +49,188 @@ public class RapportService {
     private IncidentRepository incidentRepository;
 
     @Autowired
-    private StatisticsService statisticsService;
+    private List<RapportEngine> engines;
 
-    @Transactional
-    public Rapport genererRapportStatistiques(User user, LocalDate dateDebut, LocalDate dateFin, FormatExport format) {
-        try {
-            // Récupérer les statistiques
-            Map<String, Object> stats = statisticsService.getGeneralStatistics();
+    @Autowired
+    private RapportCacheService rapportCacheService;
 
-            // Récupérer les incidents de la période - Utilisez la bonne méthode du repository
-            List<Incident> incidents = incidentRepository.findByCreatedAtBetween(
-                    dateDebut.atStartOfDay(),
-                    dateFin.atTime(23, 59, 59)
-            );
+    // Nombre d'incidents lus par requête et ajoutés au PDF avant écriture sur disque
+    @Value("${app.reports.batch-size:1000}")
+    private int batchSize;
 
-            // Générer le contenu du rapport
-            StringBuilder contenu = new StringBuilder();
-            contenu.append("RAPPORT DE STATISTIQUES DES INCIDENTS - CITESIGNAL\n");
-            contenu.append("=".repeat(60)).append("\n\n");
-            contenu.append("Période : ").append(dateDebut.format(DateTimeFormatter.ofPattern("dd/MM/yyyy")));
-            contenu.append(" à ").append(dateFin.format(DateTimeFormatter.ofPattern("dd/MM/yyyy"))).append("\n");
-            contenu.append("Date de génération : ").append(LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"))).append("\n");
-            contenu.append("Généré par : ").append(user.getNom()).append(" ").append(user.getPrenom()).append("\n");
-            contenu.append("-".repeat(60)).append("\n\n");
-
-            // Statistiques générales
-            contenu.append("STATISTIQUES GÉNÉRALES\n");
-            contenu.append("-".repeat(30)).append("\n");
-            contenu.append(String.format("• Total des incidents : %d\n", stats.get("totalIncidents")));
-            contenu.append(String.format("• Incidents des 30 derniers jours : %d\n", stats.get("recentIncidents")));
-            contenu.append(String.format("• Incidents résolus (30 jours) : %d\n", stats.get("resolvedLast30Days")));
-            contenu.append(String.format("• Taux de résolution : %.1f%%\n\n", stats.get("resolutionRate")));
-
-            // Répartition par statut
-            Map<String, Long> incidentsByStatus = (Map<String, Long>) stats.get("incidentsByStatus");
-            if (incidentsByStatus != null && !incidentsByStatus.isEmpty()) {
-                contenu.append("RÉPARTITION PAR STATUT\n");
-                contenu.append("-".repeat(30)).append("\n");
-                incidentsByStatus.forEach((statut, count) ->
-                        contenu.append(String.format("• %s : %d\n", statut, count)));
-                contenu.append("\n");
-            }
+    // Lignes Excel conservées en mémoire, les précédentes étant écrites dans un fichier temporaire
+    @Value("${app.reports.excel.window-size:100}")
+    private int excelWindowSize;
 
-            // Répartition par catégorie
-            Map<String, Long> incidentsByCategory = (Map<String, Long>) stats.get("incidentsByCategory");
-            if (incidentsByCategory != null && !incidentsByCategory.isEmpty()) {
-                contenu.append("RÉPARTITION PAR CATÉGORIE\n");
-                contenu.append("-".repeat(30)).append("\n");
-                incidentsByCategory.forEach((categorie, count) ->
-                        contenu.append(String.format("• %s : %d\n", categorie, count)));
-                contenu.append("\n");
-            }
+    // Hors du répertoire d'upload : les rapports ne sont ni servis publiquement ni nettoyés
+    @Value("${app.reports.dir:rapports}")
+    private String reportsDir;
+
+    private final Map<TypeRapport, RapportEngine> enginesByType = new EnumMap<>(TypeRapport.class);
+
+    // Écriture d'une ligne de détail ; les incidents sont transmis un par un, jamais en liste
+    private interface RowWriter {
+        void write(IncidentReportRow row) throws Exception;
+    }
+
+    @PostConstruct
+    public void init() {
+        for (RapportEngine engine : engines) {
+            enginesByType.put(engine.getType(), engine);
+        }
+    }
 
-            // Répartition par quartier
-            Map<String, Long> incidentsByQuartier = (Map<String, Long>) stats.get("incidentsByQuartier");
-            if (incidentsByQuartier != null && !incidentsByQuartier.isEmpty()) {
-                contenu.append("RÉPARTITION PAR QUARTIER\n");
-                contenu.append("-".repeat(30)).append("\n");
-                incidentsByQuartier.forEach((quartier, count) ->
-                        contenu.append(String.format("• %s : %d\n", quartier, count)));
-                contenu.append("\n");
+    public boolean isSupported(TypeRapport type) {
+        return enginesByType.containsKey(type);
+    }
+
+    // Enregistre le rapport en attente de génération ; le fichier est produit par RapportJobService
+    @Transactional
+    public Rapport creerRapport(User user, TypeRapport type, LocalDate dateDebut, LocalDate dateFin,
+                                FormatExport format) {
+        if (!isSupported(type)) {
+            throw new RuntimeException("Type de rapport non supporté: " + type.getLibelle());
+        }
+        Rapport rapport = new Rapport();
+        rapport.setTitre(String.format("Rapport %s %s - %s", type.getLibelle().toLowerCase(),
+                dateDebut.format(DateTimeFormatter.ofPattern("ddMMyyyy")),
+                dateFin.format(DateTimeFormatter.ofPattern("ddMMyyyy"))));
+        rapport.setContenu("Rapport en cours de génération");
+        rapport.setType(type);
+        rapport.setDateDebut(dateDebut);
+        rapport.setDateFin(dateFin);
+        rapport.setCreatedBy(user);
+        rapport.setFormatExport(format);
+        rapport.setStatut(Rapport.StatutGeneration.EN_ATTENTE);
+        return rapportRepository.save(rapport);
+    }
+
+    // Produit le résumé et le fichier du rapport (auteur chargé) sans l'enregistrer : appelé
+    // hors transaction, chaque lot d'incidents est lu dans sa propre requête
+    public void genererRapport(Rapport rapport, RapportProgress progress) {
+        try {
+            LocalDate dateDebut = rapport.getDateDebut();
+            LocalDate dateFin = rapport.getDateFin();
+
+            // Relevé avant toute lecture : une modification pendant la génération invalide le rapport
+            rapport.setFiligrane(rapportCacheService.calculerFiligrane(dateDebut, dateFin));
+
+            // Indicateurs et tableaux calculés une seule fois pour le résumé et le fichier ;
+            // le détail éventuel des incidents est lu par lots pendant l'écriture du fichier
+            RapportEngine engine = enginesByType.get(rapport.getType());
+            if (engine == null) {
+                throw new RuntimeException("Type de rapport non supporté: " + rapport.getType());
             }
+            RapportContent content = engine.build(dateDebut, dateFin);
+            LocalDateTime debut = RapportEngine.debut(dateDebut);
+            LocalDateTime fin = RapportEngine.fin(dateFin);
+            progress.setLignesTotal(content.isDetailIncidents() ? content.getNombreIncidents() : 0);
 
-            // Détail des incidents de la période
-            if (!incidents.isEmpty()) {
-                contenu.append("DÉTAIL DES INCIDENTS DE LA PÉRIODE (").append(incidents.size()).append(" incidents)\n");
-                contenu.append("-".repeat(60)).append("\n");
-                contenu.append(String.format("%-6s %-40s %-20s %-15s %-10s\n",
-                        "ID", "Titre", "Catégorie", "Statut", "Date"));
-                contenu.append("-".repeat(100)).append("\n");
-
-                for (Incident incident : incidents) {
-                    contenu.append(String.format("%-6d %-40s %-20s %-15s %-10s\n",
-                            incident.getId(),
-                            incident.getTitre().length() > 38 ? incident.getTitre().substring(0, 35) + "..." : incident.getTitre(),
-                            // Categorie est une énumération, utilisez .name() au lieu de .getNom()
-                            incident.getCategorie() != null ?
-                                    (incident.getCategorie().name().length() > 18 ?
-                                            incident.getCategorie().name().substring(0, 15) + "..." :
-                                            incident.getCategorie().name()) : "N/A",
-                            incident.getStatut().toString().length() > 12 ?
-                                    incident.getStatut().toString().substring(0, 9) + "..." :
-                                    incident.getStatut().toString(),
-                            // Utilisez createdAt au lieu de dateSignalement
-                            incident.getCreatedAt() != null ?
-                                    incident.getCreatedAt().format(DateTimeFormatter.ofPattern("dd/MM/yyyy")) : "N/A"
-                    ));
-                }
-            } else {
-                contenu.append("AUCUN INCIDENT POUR LA PÉRIODE SÉLECTIONNÉE\n");
+            // Générer le contenu du rapport
+            StringBuilder contenu = new StringBuilder();
+            ecrireResume(contenu, rapport, content);
+            if (content.isDetailIncidents() && content.getNombreIncidents() > 0) {
+                // Le détail des incidents figure uniquement dans le fichier généré
+                contenu.append("Le détail des incidents est disponible dans le fichier du rapport.\n");
             }
 
-            // Créer le rapport
-            Rapport rapport = new Rapport();
-            rapport.setTitre(String.format("Rapport statistiques %s - %s",
-                    dateDebut.format(DateTimeFormatter.ofPattern("ddMMyyyy")),
-                    dateFin.format(DateTimeFormatter.ofPattern("ddMMyyyy"))));
-            rapport.setContenu(contenu.toString());
-            rapport.setType(TypeRapport.STATISTIQUES_GENERALES);
-            rapport.setDateDebut(dateDebut);
-            rapport.setDateFin(dateFin);
-            rapport.setCreatedBy(user);
-            rapport.setFormatExport(format);
+            // Résumé borné par la taille de la colonne (nombreux quartiers)
+            rapport.setContenu(contenu.length() > 5000 ? contenu.substring(0, 4997) + "..." : contenu.toString());
 
             // Générer le fichier
             String fileName = genererNomFichier(rapport);
-            String filePath = genererFichierRapport(rapport, fileName, format, incidents);
+            String filePath = genererFichierRapport(rapport, fileName, rapport.getFormatExport(), content,
+                    debut, fin, progress);
             rapport.setFichierChemin(filePath);
-
-            return rapportRepository.save(rapport);
+            rapport.setLignesTraitees(progress.getLignesTraitees());
+            rapport.setTailleFichier(progress.getOctetsEcrits());
 
         } catch (Exception e) {
             throw new RuntimeException("Erreur lors de la génération du rapport: " + e.getMessage(), e);
         }
     }
 
+    // En-tête, indicateurs et tableaux complets : repris tels quels par l'export TXT, seul le
+    // résumé enregistré dans le rapport est tronqué
+    private static void ecrireResume(Appendable sortie, Rapport rapport, RapportContent content) throws IOException {
+        User user = rapport.getCreatedBy();
+        sortie.append(content.getTitre()).append(" - CITESIGNAL\n");
+        sortie.append("=".repeat(60)).append("\n\n");
+        sortie.append("Période : ").append(rapport.getDateDebut().format(DateTimeFormatter.ofPattern("dd/MM/yyyy")));
+        sortie.append(" à ").append(rapport.getDateFin().format(DateTimeFormatter.ofPattern("dd/MM/yyyy"))).append("\n");
+        sortie.append("Date de génération : ").append(LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm"))).append("\n");
+        sortie.append("Généré par : ").append(user.getNom()).append(" ").append(user.getPrenom()).append("\n");
+        sortie.append("-".repeat(60)).append("\n\n");
+
+        // Indicateurs de la période
+        sortie.append("STATISTIQUES DE LA PÉRIODE\n");
+        sortie.append("-".repeat(30)).append("\n");
+        for (Map.Entry<String, Number> indicateur : content.getIndicateurs().entrySet()) {
+            sortie.append(String.format("• %s : %s\n", indicateur.getKey(), formater(indicateur.getValue())));
+        }
+        sortie.append("\n");
+
+        // Tableaux du rapport
+        for (RapportTable table : content.getTables()) {
+            if (!table.getLignes().isEmpty()) {
+                sortie.append(table.getTitre()).append("\n");
+                sortie.append("-".repeat(30)).append("\n");
+                for (List<Object> ligne : table.getLignes()) {
+                    sortie.append("• ").append(resumer(table, ligne)).append("\n");
+                }
+                sortie.append("\n");
+            }
+        }
+
+        if (content.getNombreIncidents() == 0) {
+            sortie.append("AUCUN INCIDENT POUR LA PÉRIODE SÉLECTIONNÉE\n");
+        }
+    }
+
+    // "valeur : colonne valeur, ..." pour le résumé ; une table à deux colonnes donne "nom : valeur"
+    private static String resumer(RapportTable table, List<Object> ligne) {
+        StringBuilder resume = new StringBuilder(formater(ligne.get(0))).append(" : ");
+        if (ligne.size() == 2) {
+            return resume.append(formater(ligne.get(1))).toString();
+        }
+        for (int i = 1; i < ligne.size(); i++) {
+            if (i > 1) {
+                resume.append(", ");
+            }
+            resume.append(table.getColonnes().get(i)).append(" ").append(formater(ligne.get(i)));
+        }
+        return resume.toString();
+    }
+
+    private static String formater(Object valeur) {
+        if (valeur == null) {
+            return "N/A";
+        }
+        return valeur instanceof LocalDateTime ? ((LocalDateTime) valeur).format(DATE_HEURE) : valeur.toString();
+    }
+
     private String genererNomFichier(Rapport rapport) {
         String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        String baseName = "rapport_stats_" + timestamp;
+        String baseName = "rapport_" + rapport.getType().name().toLowerCase() + "_" + rapport.getId() + "_" + timestamp;
 
         switch (rapport.getFormatExport()) {
             case PDF:
                 return baseName + ".pdf";
             case CSV:
                 return baseName + ".csv";
+            case EXCEL:
+                return baseName + ".xlsx";
             default:
                 return baseName + ".txt";
         }
     }
 
-    private String genererFichierRapport(Rapport rapport, String fileName,
-                                         FormatExport format, List<Incident> incidents) {
+    private String genererFichierRapport(Rapport rapport, String fileName, FormatExport format,
+                                         RapportContent content, LocalDateTime debut,
+                                         LocalDateTime fin, RapportProgress progress) {
         try {
-            // Créer le dossier uploads/rapports s'il n'existe pas
-            Path rapportsDir = Paths.get("uploads", "rapports");
+            // Créer le dossier des rapports s'il n'existe pas
+            Path rapportsDir = Paths.get(reportsDir);
             if (!Files.exists(rapportsDir)) {
                 Files.createDirectories(rapportsDir);
             }
@@ -171,45 +239,87 @@ public class RapportService {
 
             switch (format) {
                 case CSV:
-                    genererCSV(rapport, filePath, incidents);
+                    genererCSV(rapport, filePath, content, debut, fin, progress);
                     break;
                 case PDF:
-                    genererPDF(rapport, filePath, incidents);
+                    genererPDF(rapport, filePath, content, debut, fin, progress);
+                    break;
+                case EXCEL:
+                    genererExcel(rapport, filePath, content, debut, fin, progress);
                     break;
                 default:
-                    genererTexte(rapport, filePath);
+                    genererTexte(rapport, filePath, content, debut, fin, progress);
             }
 
             return filePath.toString();
 
         } catch (Exception e) {
+            try {
+                // Pas de fichier partiel laissé sur disque
+                Files.deleteIfExists(Paths.get(reportsDir, fileName));
+            } catch (IOException ignored) {
+            }
             throw new RuntimeException("Erreur lors de la génération du fichier: " + e.getMessage(), e);
         }
     }
 
-    private void genererCSV(Rapport rapport, Path filePath, List<Incident> incidents) throws IOException {
-        try (FileWriter writer = new FileWriter(filePath.toFile())) {
-            writer.write("\"RAPPORT DE STATISTIQUES DES INCIDENTS - CITESIGNAL\"\n");
+    // Parcourt les incidents de la période par lots ordonnés (createdAt, id). Les lignes sont
+    // des projections plates : rien ne s'accumule dans le contexte de persistance et la
+    // mémoire utilisée ne dépend que de la taille d'un lot, quelle que soit la période.
+    private void forEachIncident(LocalDateTime debut, LocalDateTime fin, RapportProgress progress,
+                                 RowWriter rowWriter) throws Exception {
+        LocalDateTime apres = debut.minusNanos(1);
+        Long apresId = Long.MAX_VALUE;
+        List<Object[]> rows;
+        do {
+            rows = incidentRepository.findReportRows(apres, apresId, fin, PageRequest.of(0, batchSize));
+            for (Object[] row : rows) {
+                IncidentReportRow incident = IncidentReportRow.from(row);
+                rowWriter.write(incident);
+                progress.ligneTraitee();
+                apres = incident.getCreatedAt();
+                apresId = incident.getId();
+            }
+        } while (rows.size() == batchSize);
+    }
+
+    private void genererCSV(Rapport rapport, Path filePath, RapportContent content,
+                            LocalDateTime debut, LocalDateTime fin, RapportProgress progress) throws Exception {
+        try (BufferedWriter writer = openWriter(filePath, progress)) {
+            writer.write("\"" + escapeCsv(content.getTitre()) + " - CITESIGNAL\"\n");
             writer.write("\"Période\",\"" + rapport.getDateDebut() + " à " + rapport.getDateFin() + "\"\n");
             writer.write("\"Date de génération\",\"" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")) + "\"\n");
             writer.write("\"Généré par\",\"" + rapport.getCreatedBy().getNom() + " " + rapport.getCreatedBy().getPrenom() + "\"\n\n");
 
             writer.write("SECTION,DONNÉES\n");
 
-            // Statistiques générales
-            Map<String, Object> stats = statisticsService.getGeneralStatistics();
-            writer.write("\"Total incidents\"," + stats.get("totalIncidents") + "\n");
-            writer.write("\"Incidents 30 derniers jours\"," + stats.get("recentIncidents") + "\n");
-            writer.write("\"Incidents résolus (30 jours)\"," + stats.get("resolvedLast30Days") + "\n");
-            writer.write("\"Taux de résolution\"," + stats.get("resolutionRate") + "\n\n");
+            // Indicateurs de la période
+            for (Map.Entry<String, Number> indicateur : content.getIndicateurs().entrySet()) {
+                writer.write("\"" + escapeCsv(indicateur.getKey()) + "\"," + formater(indicateur.getValue()) + "\n");
+            }
+            writer.write("\n");
+
+            for (RapportTable table : content.getTables()) {
+                writer.write(table.getTitre() + "\n");
+                writer.write(ligneCsv(table.getColonnes()));
+                for (List<Object> ligne : table.getLignes()) {
+                    writer.write(ligneCsv(ligne));
+                }
+                writer.write("\n");
+            }
+
+            if (!content.isDetailIncidents()) {
+                writer.flush();
+                return;
+            }
 
             // Détail des incidents
             writer.write("DÉTAIL DES INCIDENTS\n");
             writer.write("ID,Titre,Description,Catégorie,Statut,Quartier,Priorité,Date création\n");
 
-            for (Incident incident : incidents) {
-                String quartierNom = incident.getQuartier() != null ?
-                        incident.getQuartier().getNom() : "N/A";
+            forEachIncident(debut, fin, progress, incident -> {
+                String quartierNom = incident.getQuartierNom() != null ?
+                        incident.getQuartierNom() : "N/A";
                 String description = incident.getDescription() != null ?
                         incident.getDescription() : "";
 
@@ -222,28 +332,46 @@ public class RapportService {
                         escapeCsv(quartierNom),
                         escapeCsv(incident.getPriorite() != null ? incident.getPriorite().name() : "N/A"),
                         incident.getCreatedAt() != null ?
-                                incident.getCreatedAt().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm")) : "N/A"
+                                incident.getCreatedAt().format(DATE_HEURE) : "N/A"
                 ));
-            }
+            });
 
             writer.flush();
         }
     }
 
+    // Nombres bruts, textes entre guillemets
+    private String ligneCsv(List<?> valeurs) {
+        StringBuilder ligne = new StringBuilder();
+        for (Object valeur : valeurs) {
+            if (ligne.length() > 0) {
+                ligne.append(',');
+            }
+            if (valeur instanceof Number) {
+                ligne.append(valeur);
+            } else {
+                ligne.append('"').append(escapeCsv(formater(valeur))).append('"');
+            }
+        }
+        return ligne.append('\n').toString();
+    }
+
     private String escapeCsv(String value) {
         if (value == null) return "";
         return value.replace("\"", "\"\"");
     }
 
-    private void genererPDF(Rapport rapport, Path filePath, List<Incident> incidents) throws Exception {
+    private void genererPDF(Rapport rapport, Path filePath, RapportContent content,
+                            LocalDateTime debut, LocalDateTime fin, RapportProgress progress) throws Exception {
         Document document = new Document();
-        PdfWriter writer = PdfWriter.getInstance(document, new FileOutputStream(filePath.toFile()));
+        PdfWriter writer = PdfWriter.getInstance(document,
+                progress.compter(new BufferedOutputStream(new FileOutputStream(filePath.toFile()))));
 
         document.open();
 
         // En-tête
         Font titleFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 18);
-        Paragraph title = new Paragraph("RAPPORT DE STATISTIQUES DES INCIDENTS", titleFont);
+        Paragraph title = new Paragraph(content.getTitre(), titleFont);
         title.setAlignment(Element.ALIGN_CENTER);
         title.setSpacingAfter(20);
         document.add(title);
@@ -260,10 +388,9 @@ public class RapportService {
         info.setSpacingAfter(20);
         document.add(info);
 
-        // Statistiques générales
-        Map<String, Object> stats = statisticsService.getGeneralStatistics();
+        // Statistiques de la période
         Font sectionFont = FontFactory.getFont(FontFactory.HELVETICA_BOLD, 12);
-        Paragraph sectionTitle = new Paragraph("STATISTIQUES GÉNÉRALES", sectionFont);
+        Paragraph sectionTitle = new Paragraph("STATISTIQUES DE LA PÉRIODE", sectionFont);
         sectionTitle.setSpacingAfter(10);
         document.add(sectionTitle);
 
@@ -271,27 +398,49 @@ public class RapportService {
         statsTable.setWidthPercentage(100);
         statsTable.setSpacingBefore(10);
         statsTable.setSpacingAfter(20);
-
-        statsTable.addCell(createCell("Total incidents", true));
-        statsTable.addCell(createCell(stats.get("totalIncidents").toString(), false));
-        statsTable.addCell(createCell("Incidents des 30 derniers jours", true));
-        statsTable.addCell(createCell(stats.get("recentIncidents").toString(), false));
-        statsTable.addCell(createCell("Incidents résolus (30 jours)", true));
-        statsTable.addCell(createCell(stats.get("resolvedLast30Days").toString(), false));
-        statsTable.addCell(createCell("Taux de résolution", true));
-        statsTable.addCell(createCell(stats.get("resolutionRate") + "%", false));
-
+        content.getIndicateurs().forEach((libelle, valeur) -> {
+            statsTable.addCell(createCell(libelle, true));
+            statsTable.addCell(createCell(formater(valeur), false));
+        });
         document.add(statsTable);
 
+        // Tableaux du rapport
+        for (RapportTable table : content.getTables()) {
+            if (table.getLignes().isEmpty()) {
+                continue;
+            }
+            Paragraph tableTitle = new Paragraph(table.getTitre(), sectionFont);
+            tableTitle.setSpacingAfter(10);
+            document.add(tableTitle);
+
+            PdfPTable pdfTable = new PdfPTable(table.getColonnes().size());
+            pdfTable.setWidthPercentage(100);
+            pdfTable.setSpacingBefore(10);
+            pdfTable.setSpacingAfter(20);
+            pdfTable.setHeaderRows(1);
+            table.getColonnes().forEach(colonne -> pdfTable.addCell(createCell(colonne, true)));
+            for (List<Object> ligne : table.getLignes()) {
+                for (int i = 0; i < ligne.size(); i++) {
+                    pdfTable.addCell(createCell(formater(ligne.get(i)), i == 0));
+                }
+            }
+            document.add(pdfTable);
+        }
+
         // Table des incidents
-        if (!incidents.isEmpty()) {
-            Paragraph incidentsTitle = new Paragraph("DÉTAIL DES INCIDENTS (" + incidents.size() + " incidents)", sectionFont);
+        long nombreIncidents = content.getNombreIncidents();
+        if (content.isDetailIncidents() && nombreIncidents > 0) {
+            Paragraph incidentsTitle = new Paragraph("DÉTAIL DES INCIDENTS (" + nombreIncidents + " incidents)", sectionFont);
             incidentsTitle.setSpacingAfter(10);
             document.add(incidentsTitle);
 
+            // Table incomplète : les lignes déjà ajoutées sont écrites dans le document à chaque
+            // lot puis libérées, l'en-tête étant répété sur chaque page
             PdfPTable table = new PdfPTable(5);
             table.setWidthPercentage(100);
             table.setSpacingBefore(10);
+            table.setHeaderRows(1);
+            table.setComplete(false);
 
             // En-têtes
             table.addCell(createCell("ID", true));
@@ -302,7 +451,8 @@ public class RapportService {
 
             // Données
             Font dataFont = FontFactory.getFont(FontFactory.HELVETICA, 8);
-            for (Incident incident : incidents) {
+            int[] pending = {0};
+            forEachIncident(debut, fin, progress, incident -> {
                 table.addCell(new PdfPCell(new Phrase(String.valueOf(incident.getId()), dataFont)));
                 table.addCell(new PdfPCell(new Phrase(
                         incident.getTitre().length() > 30 ? incident.getTitre().substring(0, 27) + "..." : incident.getTitre(),
@@ -313,12 +463,17 @@ public class RapportService {
                 table.addCell(new PdfPCell(new Phrase(incident.getStatut().toString(), dataFont)));
                 table.addCell(new PdfPCell(new Phrase(
                         incident.getCreatedAt() != null ?
-                                incident.getCreatedAt().format(DateTimeFormatter.ofPattern("dd/MM/yyyy")) : "N/A",
+                                incident.getCreatedAt().format(DATE) : "N/A",
                         dataFont)));
-            }
+                if (++pending[0] == batchSize) {
+                    document.add(table);
+                    pending[0] = 0;
+                }
+            });
 
+            table.setComplete(true);
             document.add(table);
-        } else {
+        } else if (nombreIncidents == 0) {
             Paragraph noData = new Paragraph("Aucun incident pour la période sélectionnée", infoFont);
             noData.setAlignment(Element.ALIGN_CENTER);
             noData.setSpacingBefore(20);
@@ -347,8 +502,171 @@ public class RapportService {
         return cell;
     }
 
-    private void genererTexte(Rapport rapport, Path filePath) throws IOException {
-        Files.write(filePath, rapport.getContenu().getBytes());
+    private static final String[] EXCEL_COLONNES = {"ID", "Titre", "Description", "Catégorie", "Statut",
+            "Priorité", "Quartier", "Date création", "Note satisfaction"};
+
+    // Classeur en flux (SXSSF) : seule une fenêtre de lignes reste en mémoire, les chaînes sont
+    // écrites en ligne plutôt que dans la table partagée, dont la taille croîtrait avec le fichier
+    private void genererExcel(Rapport rapport, Path filePath, RapportContent content,
+                              LocalDateTime debut, LocalDateTime fin, RapportProgress progress) throws Exception {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(excelWindowSize);
+        workbook.setCompressTempFiles(true);
+        try {
+            org.apache.poi.ss.usermodel.Font boldFont = workbook.createFont();
+            boldFont.setBold(true);
+            CellStyle headerStyle = workbook.createCellStyle();
+            headerStyle.setFont(boldFont);
+            headerStyle.setFillForegroundColor(IndexedColors.GREY_25_PERCENT.getIndex());
+            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.createDataFormat().getFormat("dd/mm/yyyy hh:mm"));
+
+            // Résumé
+            Sheet resume = workbook.createSheet("Résumé");
+            resume.setColumnWidth(0, 40 * 256);
+            resume.setColumnWidth(1, 30 * 256);
+            int r = 0;
+            Row titre = resume.createRow(r++);
+            titre.createCell(0).setCellValue(content.getTitre() + " - CITESIGNAL");
+            titre.getCell(0).setCellStyle(headerStyle);
+            ajouterLigne(resume, r++, dateStyle, "Période", rapport.getDateDebut() + " à " + rapport.getDateFin());
+            ajouterLigne(resume, r++, dateStyle, "Date de génération", LocalDateTime.now().format(DATE_HEURE));
+            ajouterLigne(resume, r++, dateStyle, "Généré par",
+                    rapport.getCreatedBy().getNom() + " " + rapport.getCreatedBy().getPrenom());
+            r++;
+            for (Map.Entry<String, Number> indicateur : content.getIndicateurs().entrySet()) {
+                ajouterLigne(resume, r++, dateStyle, indicateur.getKey(),
+                        indicateur.getValue() != null ? indicateur.getValue() : "N/A");
+            }
+            for (RapportTable table : content.getTables()) {
+                r++;
+                Row section = resume.createRow(r++);
+                section.createCell(0).setCellValue(table.getTitre());
+                section.getCell(0).setCellStyle(headerStyle);
+                Row entetes = ajouterLigne(resume, r++, dateStyle, table.getColonnes().toArray());
+                entetes.forEach(cell -> cell.setCellStyle(headerStyle));
+                for (List<Object> ligne : table.getLignes()) {
+                    ajouterLigne(resume, r++, dateStyle, ligne.toArray());
+                }
+            }
+
+            if (!content.isDetailIncidents()) {
+                try (OutputStream output = progress.compter(new BufferedOutputStream(Files.newOutputStream(filePath)))) {
+                    workbook.write(output);
+                }
+                return;
+            }
+
+            // Détail, réparti sur plusieurs feuilles au-delà de la limite de lignes d'Excel
+            int maxRows = SpreadsheetVersion.EXCEL2007.getMaxRows();
+            int[] position = {0, 0};
+            Sheet[] courante = {creerFeuilleIncidents(workbook, 1, headerStyle)};
+            forEachIncident(debut, fin, progress, incident -> {
+                if (++position[0] >= maxRows) {
+                    terminerFeuilleIncidents(courante[0], maxRows - 1);
+                    courante[0] = creerFeuilleIncidents(workbook, ++position[1] + 1, headerStyle);
+                    position[0] = 1;
+                }
+                Row row = courante[0].createRow(position[0]);
+                row.createCell(0).setCellValue(incident.getId());
+                row.createCell(1).setCellValue(incident.getTitre());
+                row.createCell(2).setCellValue(incident.getDescription() != null ? incident.getDescription() : "");
+                if (incident.getCategorie() != null) {
+                    row.createCell(3).setCellValue(incident.getCategorie().name());
+                }
+                row.createCell(4).setCellValue(incident.getStatut().name());
+                if (incident.getPriorite() != null) {
+                    row.createCell(5).setCellValue(incident.getPriorite().name());
+                }
+                if (incident.getQuartierNom() != null) {
+                    row.createCell(6).setCellValue(incident.getQuartierNom());
+                }
+                if (incident.getCreatedAt() != null) {
+                    Cell date = row.createCell(7);
+                    date.setCellValue(incident.getCreatedAt());
+                    date.setCellStyle(dateStyle);
+                }
+                if (incident.getNoteSatisfaction() != null) {
+                    row.createCell(8).setCellValue(incident.getNoteSatisfaction());
+                }
+            });
+            terminerFeuilleIncidents(courante[0], position[0]);
+
+            try (OutputStream output = progress.compter(new BufferedOutputStream(Files.newOutputStream(filePath)))) {
+                workbook.write(output);
+            }
+        } finally {
+            // Supprime les fichiers temporaires de la fenêtre
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    private Sheet creerFeuilleIncidents(SXSSFWorkbook workbook, int numero, CellStyle headerStyle) {
+        Sheet sheet = workbook.createSheet(numero == 1 ? "Incidents" : "Incidents (" + numero + ")");
+        int[] largeurs = {8, 40, 60, 20, 16, 12, 24, 18, 10};
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < EXCEL_COLONNES.length; i++) {
+            sheet.setColumnWidth(i, largeurs[i] * 256);
+            Cell cell = header.createCell(i);
+            cell.setCellValue(EXCEL_COLONNES[i]);
+            cell.setCellStyle(headerStyle);
+        }
+        sheet.createFreezePane(0, 1);
+        return sheet;
+    }
+
+    private void terminerFeuilleIncidents(Sheet sheet, int derniereLigne) {
+        sheet.setAutoFilter(new CellRangeAddress(0, Math.max(derniereLigne, 0), 0, EXCEL_COLONNES.length - 1));
+    }
+
+    // Cellules typées : nombres et dates restent exploitables dans le tableur, null laisse la cellule vide
+    private static Row ajouterLigne(Sheet sheet, int index, CellStyle dateStyle, Object... valeurs) {
+        Row row = sheet.createRow(index);
+        for (int i = 0; i < valeurs.length; i++) {
+            Cell cell = row.createCell(i);
+            Object valeur = valeurs[i];
+            if (valeur instanceof Number) {
+                cell.setCellValue(((Number) valeur).doubleValue());
+            } else if (valeur instanceof LocalDateTime) {
+                cell.setCellValue((LocalDateTime) valeur);
+                cell.setCellStyle(dateStyle);
+            } else if (valeur != null) {
+                cell.setCellValue(valeur.toString());
+            }
+        }
+        return row;
+    }
+
+    private void genererTexte(Rapport rapport, Path filePath, RapportContent content, LocalDateTime debut,
+                              LocalDateTime fin, RapportProgress progress) throws Exception {
+        try (BufferedWriter writer = openWriter(filePath, progress)) {
+            ecrireResume(writer, rapport, content);
+            writer.write("\n");
+            if (!content.isDetailIncidents() || content.getNombreIncidents() == 0) {
+                return;
+            }
+            writer.write(String.format("%-6s %-40s %-20s %-15s %-10s\n",
+                    "ID", "Titre", "Catégorie", "Statut", "Date"));
+            writer.write("-".repeat(100) + "\n");
+            forEachIncident(debut, fin, progress, incident -> writer.write(String.format("%-6d %-40s %-20s %-15s %-10s\n",
+                    incident.getId(),
+                    tronquer(incident.getTitre(), 38),
+                    incident.getCategorie() != null ? tronquer(incident.getCategorie().name(), 18) : "N/A",
+                    tronquer(incident.getStatut().toString(), 12),
+                    incident.getCreatedAt() != null ? incident.getCreatedAt().format(DATE) : "N/A"
+            )));
+        }
+    }
+
+    private static BufferedWriter openWriter(Path filePath, RapportProgress progress) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(
+                progress.compter(Files.newOutputStream(filePath)), StandardCharsets.UTF_8));
+    }
+
+    private static String tronquer(String value, int max) {
+        if (value == null) return "";
+        return value.length() > max ? value.substring(0, max - 3) + "..." : value;
     }
 
     public Rapport findById(Long id) {
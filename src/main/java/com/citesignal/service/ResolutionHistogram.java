@@ -0,0 +1,51 @@
+package com.citesignal.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+// Délais de résolution comptés par heure jusqu'à un an (au-delà dans la dernière case) : la
+// moyenne est exacte, les centiles sont donnés à l'heure près, en mémoire fixe
+public class ResolutionHistogram {
+
+    private static final int MAX_HOURS = 24 * 365;
+
+    private final long[] buckets = new long[MAX_HOURS + 1];
+    private long count;
+    private long totalSeconds;
+
+    // Ignore les incidents non résolus et les dates incohérentes
+    public void add(LocalDateTime createdAt, LocalDateTime dateResolution) {
+        if (createdAt == null || dateResolution == null || dateResolution.isBefore(createdAt)) {
+            return;
+        }
+        long seconds = Duration.between(createdAt, dateResolution).getSeconds();
+        totalSeconds += seconds;
+        count++;
+        buckets[(int) Math.min(seconds / 3600, MAX_HOURS)]++;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    // Null si aucun incident résolu
+    public Double getMeanHours() {
+        return count > 0 ? Math.round(totalSeconds / 3600.0 / count * 10.0) / 10.0 : null;
+    }
+
+    // Borne supérieure (en heures) de la case contenant le centile demandé, null si vide
+    public Double getPercentileHours(double percentile) {
+        if (count == 0) {
+            return null;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile * count));
+        long cumulative = 0;
+        for (int hours = 0; hours < buckets.length; hours++) {
+            cumulative += buckets[hours];
+            if (cumulative >= rank) {
+                return (double) (hours + 1);
+            }
+        }
+        return (double) buckets.length;
+    }
+}
@@ -0,0 +1,67 @@
+package com.citesignal.service;
+
+import com.citesignal.dto.RapportContent;
+import com.citesignal.dto.RapportTable;
+import com.citesignal.model.CategorieIncident;
+import com.citesignal.model.TypeRapport;
+import com.citesignal.repository.IncidentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+// Distribution des notes de satisfaction et satisfaction par catégorie, calculées par la base
+@Component
+public class SatisfactionCitoyensEngine implements RapportEngine {
+
+    @Autowired
+    private IncidentRepository incidentRepository;
+
+    @Override
+    public TypeRapport getType() {
+        return TypeRapport.SATISFACTION_CITOYENS;
+    }
+
+    @Override
+    public RapportContent build(LocalDate dateDebut, LocalDate dateFin) {
+        LocalDateTime debut = RapportEngine.debut(dateDebut);
+        LocalDateTime fin = RapportEngine.fin(dateFin);
+        RapportContent content = new RapportContent();
+        content.setTitre("RAPPORT DE SATISFACTION DES CITOYENS");
+
+        List<Object[]> distribution = incidentRepository.countPeriodBySatisfaction(debut, fin);
+        long notes = 0;
+        long somme = 0;
+        for (Object[] row : distribution) {
+            long count = ((Number) row[1]).longValue();
+            notes += count;
+            somme += ((Number) row[0]).longValue() * count;
+        }
+        RapportTable repartition = new RapportTable("RÉPARTITION DES NOTES", "Note", "Nombre", "Part (%)");
+        for (Object[] row : distribution) {
+            long count = ((Number) row[1]).longValue();
+            repartition.ajouterLigne(row[0], count, RapportEngine.taux(count, notes));
+        }
+        content.getTables().add(repartition);
+
+        RapportTable parCategorie = new RapportTable("SATISFACTION PAR CATÉGORIE", "Catégorie", "Incidents",
+                "Résolus", "Taux de résolution (%)", "Note moyenne", "Nombre de notes");
+        long total = RapportEngine.ajouterAgregats(content, parCategorie,
+                incidentRepository.aggregatePeriodByCategorie(debut, fin, RESOLUS),
+                categorie -> categorie != null ? ((CategorieIncident) categorie).name() : "Non spécifiée");
+        long resolus = parCategorie.getLignes().stream().mapToLong(ligne -> (Long) ligne.get(2)).sum();
+
+        content.getIndicateurs().put("Incidents de la période", total);
+        content.getIndicateurs().put("Incidents résolus", resolus);
+        content.getIndicateurs().put("Notes de satisfaction", notes);
+        content.getIndicateurs().put("Note moyenne", notes > 0 ? Math.round((double) somme / notes * 100.0) / 100.0 : null);
+        // Part des incidents résolus ayant reçu une note : les notes laissées sur d'autres statuts
+        // ne comptent pas, le taux reste borné à 100 %
+        content.getIndicateurs().put("Taux de réponse (%)",
+                RapportEngine.taux(incidentRepository.countPeriodRatedByStatutIn(debut, fin, RESOLUS), resolus));
+        content.setNombreIncidents(total);
+        return content;
+    }
+}
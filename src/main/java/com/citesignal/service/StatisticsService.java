@@ -1,16 +1,21 @@
 package com.citesignal.service;
 
+import com.citesignal.dto.PeriodStatistics;
 import com.citesignal.model.CategorieIncident;
-import com.citesignal.model.Incident;
 import com.citesignal.model.StatutIncident;
 import com.citesignal.repository.IncidentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 
 @Service
 public class StatisticsService {
@@ -18,73 +23,214 @@ public class StatisticsService {
     @Autowired
     private IncidentRepository incidentRepository;
     
+    @Autowired
+    private IncidentStatisticsCounters counters;
+    
+    @Value("${app.statistics.period-batch-size:5000}")
+    private int periodBatchSize;
+    
     public Map<String, Object> getGeneralStatistics() {
+        // Mode "memory" : compteurs maintenus par le cycle de vie des incidents
+        if (counters.isReady()) {
+            return getStatisticsFromCounters();
+        }
+        
         Map<String, Object> stats = new HashMap<>();
         
+        // Une seule requête GROUP BY (statut, catégorie) remplace les COUNT par valeur
+        // d'énumération et le chargement des incidents des 30 derniers jours
+        LocalDateTime date30DaysAgo = LocalDateTime.now().minusDays(30);
+        long[] countsByStatus = new long[StatutIncident.values().length];
+        long[] countsByCategory = new long[CategorieIncident.values().length];
+        long totalIncidents = 0;
+        long recentIncidents = 0;
+        long resolvedLast30Days = 0;
+        
+        for (Object[] row : incidentRepository.aggregateByStatutAndCategorie(date30DaysAgo)) {
+            StatutIncident statut = (StatutIncident) row[0];
+            CategorieIncident categorie = (CategorieIncident) row[1];
+            long count = toLong(row[2]);
+            long recent = toLong(row[3]);
+            
+            countsByStatus[statut.ordinal()] += count;
+            countsByCategory[categorie.ordinal()] += count;
+            totalIncidents += count;
+            recentIncidents += recent;
+            if (statut == StatutIncident.RESOLU || statut == StatutIncident.CLOTURE) {
+                resolvedLast30Days += recent;
+            }
+        }
+        
         // Total des incidents
-        long totalIncidents = incidentRepository.count();
         stats.put("totalIncidents", totalIncidents);
         
         // Incidents par statut
         Map<String, Long> incidentsByStatus = new HashMap<>();
         for (StatutIncident statut : StatutIncident.values()) {
-            Long count = incidentRepository.countByStatut(statut);
-            incidentsByStatus.put(statut.name(), count != null ? count : 0L);
+            incidentsByStatus.put(statut.name(), countsByStatus[statut.ordinal()]);
         }
         stats.put("incidentsByStatus", incidentsByStatus);
         
         // Incidents par catégorie
         Map<String, Long> incidentsByCategory = new HashMap<>();
         for (CategorieIncident categorie : CategorieIncident.values()) {
-            Long count = incidentRepository.countByCategorie(categorie);
-            incidentsByCategory.put(categorie.name(), count != null ? count : 0L);
+            incidentsByCategory.put(categorie.name(), countsByCategory[categorie.ordinal()]);
         }
         stats.put("incidentsByCategory", incidentsByCategory);
         
-        // Incidents par quartier
-        List<Object[]> quartierStats = incidentRepository.countIncidentsByQuartier();
-        Map<String, Long> incidentsByQuartier = new HashMap<>();
-        for (Object[] row : quartierStats) {
-            String quartierName = (String) row[0];
-            Long count = (Long) row[1];
-            incidentsByQuartier.put(quartierName != null ? quartierName : "Non spécifié", count);
-        }
-        stats.put("incidentsByQuartier", incidentsByQuartier);
+        // Incidents par quartier et par département
+        stats.put("incidentsByQuartier", toCountMap(incidentRepository.countIncidentsByQuartier(), "Non spécifié"));
+        stats.put("incidentsByDepartement", toCountMap(incidentRepository.countIncidentsByDepartement(), "Non assigné"));
         
         // Incidents des 30 derniers jours
-        LocalDateTime date30DaysAgo = LocalDateTime.now().minusDays(30);
-        List<Incident> recentIncidents = incidentRepository.findByDateRange(
-                date30DaysAgo, LocalDateTime.now()
-        );
-        stats.put("recentIncidents", recentIncidents.size());
+        stats.put("recentIncidents", recentIncidents);
         
         // Incidents résolus dans les 30 derniers jours
-        long resolvedLast30Days = recentIncidents.stream()
-                .filter(i -> i.getStatut() == StatutIncident.RESOLU || 
-                            i.getStatut() == StatutIncident.CLOTURE)
-                .count();
         stats.put("resolvedLast30Days", resolvedLast30Days);
         
         // Taux de résolution
         double resolutionRate = 0;
-        if (recentIncidents.size() > 0) {
-            resolutionRate = (double) resolvedLast30Days / recentIncidents.size() * 100;
+        if (recentIncidents > 0) {
+            resolutionRate = (double) resolvedLast30Days / recentIncidents * 100;
+        }
+        stats.put("resolutionRate", Math.round(resolutionRate * 100.0) / 100.0);
+        
+        return stats;
+    }
+    
+    private Map<String, Object> getStatisticsFromCounters() {
+        Map<String, Object> stats = new HashMap<>();
+        long recentIncidents = counters.getRecentIncidents();
+        long resolvedLast30Days = counters.getResolvedRecentIncidents();
+        
+        stats.put("totalIncidents", counters.getTotalIncidents());
+        stats.put("incidentsByStatus", counters.getIncidentsByStatus());
+        stats.put("incidentsByCategory", counters.getIncidentsByCategory());
+        stats.put("incidentsByQuartier", counters.getIncidentsByQuartier());
+        stats.put("incidentsByDepartement", counters.getIncidentsByDepartement());
+        stats.put("recentIncidents", recentIncidents);
+        stats.put("resolvedLast30Days", resolvedLast30Days);
+        
+        double resolutionRate = 0;
+        if (recentIncidents > 0) {
+            resolutionRate = (double) resolvedLast30Days / recentIncidents * 100;
         }
         stats.put("resolutionRate", Math.round(resolutionRate * 100.0) / 100.0);
         
+        // Écart constaté lors de la dernière réconciliation avec la base
+        stats.put("countersDrift", counters.getLastDrift());
+        stats.put("countersReconciledAt", counters.getLastReconciliation());
         return stats;
     }
     
+    // Un seul parcours des incidents créés sur la période, par lots ordonnés (createdAt, id) : les
+    // compteurs, sommes et l'histogramme des délais occupent une mémoire fixe quelle que soit la période
+    public PeriodStatistics getPeriodStatistics(LocalDate dateDebut, LocalDate dateFin) {
+        long[] countsByStatus = new long[StatutIncident.values().length];
+        long[] countsByCategory = new long[CategorieIncident.values().length];
+        Map<String, Long> countsByQuartier = new HashMap<>();
+        Map<String, Long> countsByDepartement = new HashMap<>();
+        ResolutionHistogram resolution = new ResolutionHistogram();
+        long[] totals = new long[4]; // total, résolus, somme des notes, nombre de notes
+        
+        scanPeriod(dateDebut, dateFin, row -> {
+            StatutIncident statut = (StatutIncident) row[1];
+            CategorieIncident categorie = (CategorieIncident) row[2];
+            Integer note = (Integer) row[7];
+            
+            totals[0]++;
+            countsByStatus[statut.ordinal()]++;
+            if (categorie != null) {
+                countsByCategory[categorie.ordinal()]++;
+            }
+            countsByQuartier.merge(row[3] != null ? (String) row[3] : "Non spécifié", 1L, Long::sum);
+            countsByDepartement.merge(row[4] != null ? (String) row[4] : "Non assigné", 1L, Long::sum);
+            if (statut == StatutIncident.RESOLU || statut == StatutIncident.CLOTURE) {
+                totals[1]++;
+            }
+            resolution.add((LocalDateTime) row[5], (LocalDateTime) row[6]);
+            if (note != null) {
+                totals[2] += note;
+                totals[3]++;
+            }
+        });
+        
+        long total = totals[0];
+        long resolved = totals[1];
+        PeriodStatistics stats = new PeriodStatistics();
+        stats.setDateDebut(dateDebut);
+        stats.setDateFin(dateFin);
+        stats.setTotal(total);
+        for (StatutIncident statut : StatutIncident.values()) {
+            stats.getByStatut().put(statut, countsByStatus[statut.ordinal()]);
+        }
+        for (CategorieIncident categorie : CategorieIncident.values()) {
+            stats.getByCategorie().put(categorie, countsByCategory[categorie.ordinal()]);
+        }
+        stats.setByQuartier(sortByCountDesc(countsByQuartier));
+        stats.setByDepartement(sortByCountDesc(countsByDepartement));
+        stats.setResolved(resolved);
+        stats.setResolutionRate(total > 0 ? Math.round((double) resolved / total * 10000.0) / 100.0 : 0);
+        stats.setMeanResolutionHours(resolution.getMeanHours());
+        stats.setMedianResolutionHours(resolution.getPercentileHours(0.5));
+        stats.setP90ResolutionHours(resolution.getPercentileHours(0.9));
+        if (totals[3] > 0) {
+            stats.setMeanSatisfaction(Math.round((double) totals[2] / totals[3] * 100.0) / 100.0);
+        }
+        stats.setSatisfactionCount(totals[3]);
+        return stats;
+    }
+    
+    // Parcourt les incidents créés sur la période, par lots ordonnés (createdAt, id). Colonnes :
+    // id, statut, catégorie, quartier, département, createdAt, dateResolution, note, priorité
+    public void scanPeriod(LocalDate dateDebut, LocalDate dateFin, Consumer<Object[]> visitor) {
+        LocalDateTime fin = dateFin.atTime(23, 59, 59);
+        LocalDateTime apres = dateDebut.atStartOfDay().minusNanos(1);
+        Long apresId = Long.MAX_VALUE;
+        List<Object[]> rows;
+        do {
+            rows = incidentRepository.findPeriodStatisticsRows(apres, apresId, fin, PageRequest.of(0, periodBatchSize));
+            for (Object[] row : rows) {
+                visitor.accept(row);
+                apres = (LocalDateTime) row[5];
+                apresId = (Long) row[0];
+            }
+        } while (rows.size() == periodBatchSize);
+    }
+    
+    private static Map<String, Long> sortByCountDesc(Map<String, Long> counts) {
+        Map<String, Long> sorted = new LinkedHashMap<>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+    
+    private static long toLong(Object value) {
+        return value != null ? ((Number) value).longValue() : 0L;
+    }
+    
     public Map<String, Long> getIncidentsByQuartier() {
-        // Cette méthode nécessiterait une requête personnalisée
-        // Pour l'instant, retournons une structure vide
-        return new HashMap<>();
+        if (counters.isReady()) {
+            return counters.getIncidentsByQuartier();
+        }
+        return toCountMap(incidentRepository.countIncidentsByQuartier(), "Non spécifié");
     }
     
     public Map<String, Long> getIncidentsByDepartement() {
-        // Cette méthode nécessiterait une requête personnalisée
-        // Pour l'instant, retournons une structure vide
-        return new HashMap<>();
+        if (counters.isReady()) {
+            return counters.getIncidentsByDepartement();
+        }
+        return toCountMap(incidentRepository.countIncidentsByDepartement(), "Non assigné");
+    }
+    
+    // Lignes (nom, nombre) déjà triées par nombre décroissant
+    private static Map<String, Long> toCountMap(List<Object[]> rows, String defaultName) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Object[] row : rows) {
+            counts.merge(row[0] != null ? (String) row[0] : defaultName, toLong(row[1]), Long::sum);
+        }
+        return counts;
     }
 }
 
@@ -0,0 +1,56 @@
+package com.citesignal.service;
+
+import com.citesignal.dto.PeriodStatistics;
+import com.citesignal.dto.RapportContent;
+import com.citesignal.dto.RapportTable;
+import com.citesignal.model.TypeRapport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Map;
+
+// Statistiques de la période, répartitions et détail des incidents
+@Component
+public class StatistiquesGeneralesEngine implements RapportEngine {
+
+    @Autowired
+    private StatisticsService statisticsService;
+
+    @Override
+    public TypeRapport getType() {
+        return TypeRapport.STATISTIQUES_GENERALES;
+    }
+
+    @Override
+    public RapportContent build(LocalDate dateDebut, LocalDate dateFin) {
+        PeriodStatistics stats = statisticsService.getPeriodStatistics(dateDebut, dateFin);
+
+        RapportContent content = new RapportContent();
+        content.setTitre("RAPPORT DE STATISTIQUES DES INCIDENTS");
+        content.getIndicateurs().put("Incidents de la période", stats.getTotal());
+        content.getIndicateurs().put("Incidents résolus", stats.getResolved());
+        content.getIndicateurs().put("Taux de résolution (%)", stats.getResolutionRate());
+        content.getIndicateurs().put("Délai moyen de résolution (heures)", stats.getMeanResolutionHours());
+        content.getIndicateurs().put("Délai médian de résolution (heures)", stats.getMedianResolutionHours());
+        content.getIndicateurs().put("Délai de résolution, 90e centile (heures)", stats.getP90ResolutionHours());
+        content.getIndicateurs().put("Note de satisfaction moyenne", stats.getMeanSatisfaction());
+        content.getIndicateurs().put("Nombre de notes de satisfaction", stats.getSatisfactionCount());
+
+        content.getTables().add(repartition("RÉPARTITION PAR STATUT", "Statut", stats.getByStatut()));
+        content.getTables().add(repartition("RÉPARTITION PAR CATÉGORIE", "Catégorie", stats.getByCategorie()));
+        content.getTables().add(repartition("RÉPARTITION PAR QUARTIER", "Quartier", stats.getByQuartier()));
+        content.getTables().add(repartition("RÉPARTITION PAR DÉPARTEMENT", "Département", stats.getByDepartement()));
+
+        content.setDetailIncidents(true);
+        content.setNombreIncidents(stats.getTotal());
+        return content;
+    }
+
+    private static RapportTable repartition(String titre, String dimension, Map<?, Long> counts) {
+        RapportTable table = new RapportTable(titre, dimension, "Incidents");
+        counts.forEach((valeur, count) ->
+                table.ajouterLigne(valeur instanceof Enum<?> ? ((Enum<?>) valeur).name() : valeur, count));
+        return table;
+    }
+}
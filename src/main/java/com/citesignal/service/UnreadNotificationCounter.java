@@ -0,0 +1,68 @@
+package com.citesignal.service;
+
+import com.citesignal.repository.NotificationRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Compteurs de notifications non lues par utilisateur. Un compteur est chargé par un COUNT
+// indexé sur (user_id, lu) au premier accès, puis tenu à jour après chaque commit ; l'expiration
+// périodique corrige un éventuel écart dû à une mise à jour concurrente du chargement.
+@Component
+public class UnreadNotificationCounter {
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Value("${app.notifications.unread-cache.max-size:10000}")
+    private long maxSize;
+
+    @Value("${app.notifications.unread-cache.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    private Cache<Long, Long> counters;
+
+    @PostConstruct
+    public void init() {
+        counters = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+    }
+
+    public long get(Long userId) {
+        return counters.get(userId, id -> notificationRepository.countByUserIdAndLu(id, false));
+    }
+
+    // Seuls les compteurs déjà chargés sont ajustés : les autres seront lus en base à jour
+    public void incrementAfterCommit(Long userId) {
+        adjustAfterCommit(userId, 1);
+    }
+
+    public void decrementAfterCommit(Long userId, long count) {
+        adjustAfterCommit(userId, -count);
+    }
+
+    public void resetAfterCommit(Long userId) {
+        if (userId != null) {
+            TransactionCallbacks.afterCommit(() -> counters.invalidate(userId));
+        }
+    }
+
+    private void adjustAfterCommit(Long userId, long delta) {
+        if (userId == null || delta == 0) {
+            return;
+        }
+        TransactionCallbacks.afterCommit(() ->
+                counters.asMap().computeIfPresent(userId, (id, current) -> Math.max(0, current + delta)));
+    }
+
+    public long size() {
+        return counters.estimatedSize();
+    }
+}
@@ -3,16 +3,21 @@ package com.citesignal.service;
 import com.citesignal.model.RoleName;
 import com.citesignal.model.User;
 import com.citesignal.repository.UserRepository;
+import com.citesignal.security.UserPrincipalCache;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.security.SecureRandom;
+import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Service
@@ -26,6 +31,9 @@ public class UserService {
     @Autowired
     private PasswordEncoder passwordEncoder;
     
+    @Autowired
+    private UserPrincipalCache userPrincipalCache;
+    
     @Autowired
     private EmailService emailService;
     
@@ -210,6 +218,7 @@ public class UserService {
         user.setEmailVerified(true);
         user.setVerificationToken(null);
         userRepository.save(user);
+        invalidatePrincipal(user.getId());
         
         logger.info("Email vérifié pour l'utilisateur: {}", user.getEmail());
         return true;
@@ -229,10 +238,28 @@ public class UserService {
         return userRepository.findAll();
     }
     
+    public Page<User> getAllUsers(Pageable pageable) {
+        return userRepository.findAll(pageable);
+    }
+    
     public List<User> getUsersByRole(RoleName role) {
-        return userRepository.findAll().stream()
-                .filter(user -> user.getRole() == role)
-                .collect(java.util.stream.Collectors.toList());
+        return userRepository.findByRole(role);
+    }
+    
+    public Page<User> getUsersByRole(RoleName role, Pageable pageable) {
+        return userRepository.findByRole(role, pageable);
+    }
+    
+    // Nombre d'utilisateurs pour chaque rôle, 0 pour les rôles sans utilisateur
+    public Map<RoleName, Long> countUsersByRole() {
+        Map<RoleName, Long> counts = new EnumMap<>(RoleName.class);
+        for (RoleName role : RoleName.values()) {
+            counts.put(role, 0L);
+        }
+        for (Object[] row : userRepository.countUsersByRole()) {
+            counts.put((RoleName) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
     }
     
     public User findById(Long id) {
@@ -241,15 +268,25 @@ public class UserService {
     
     @Transactional
     public User updateUser(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        invalidatePrincipal(saved.getId());
+        return saved;
     }
     
     @Transactional
     public void deleteUser(Long id) {
         userRepository.deleteById(id);
+        invalidatePrincipal(id);
         logger.info("Utilisateur supprimé: {}", id);
     }
     
+    // Retire l'utilisateur du cache d'authentification tout de suite et de nouveau après le
+    // commit, pour ne pas garder une version rechargée pendant la transaction
+    private void invalidatePrincipal(Long userId) {
+        userPrincipalCache.invalidate(userId);
+        TransactionCallbacks.afterCommit(() -> userPrincipalCache.invalidate(userId));
+    }
+    
     private String generateToken() {
         SecureRandom random = new SecureRandom();
         StringBuilder token = new StringBuilder(TOKEN_LENGTH);
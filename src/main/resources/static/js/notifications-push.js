@@ -0,0 +1,75 @@
+// Réception des notifications en temps réel (STOMP sur WebSocket), sans rechargement de page
+(function () {
+    if (typeof StompJs === 'undefined') {
+        return;
+    }
+
+    const protocol = window.location.protocol === 'https:' ? 'wss://' : 'ws://';
+    const client = new StompJs.Client({
+        brokerURL: protocol + window.location.host + '/ws',
+        reconnectDelay: 10000,
+        heartbeatIncoming: 25000,
+        heartbeatOutgoing: 25000
+    });
+
+    client.onConnect = function () {
+        client.subscribe('/user/queue/notifications', function (frame) {
+            showNotification(JSON.parse(frame.body));
+        });
+    };
+
+    function container() {
+        let element = document.getElementById('notification-toasts');
+        if (!element) {
+            element = document.createElement('div');
+            element.id = 'notification-toasts';
+            element.className = 'toast-container position-fixed top-0 end-0 p-3';
+            element.style.zIndex = '1080';
+            document.body.appendChild(element);
+        }
+        return element;
+    }
+
+    function showNotification(notification) {
+        const toast = document.createElement('div');
+        toast.className = 'toast';
+        toast.setAttribute('role', 'alert');
+
+        const header = document.createElement('div');
+        header.className = 'toast-header';
+        const title = document.createElement('strong');
+        title.className = 'me-auto';
+        title.textContent = notification.titre;
+        const close = document.createElement('button');
+        close.type = 'button';
+        close.className = 'btn-close';
+        close.setAttribute('data-bs-dismiss', 'toast');
+        header.appendChild(title);
+        header.appendChild(close);
+
+        const body = document.createElement('div');
+        body.className = 'toast-body';
+        body.textContent = notification.message;
+        if (notification.incidentId) {
+            const link = document.createElement('a');
+            link.href = '/incidents/' + notification.incidentId;
+            link.className = 'd-block mt-2';
+            link.textContent = 'Voir le signalement';
+            body.appendChild(link);
+        }
+
+        toast.appendChild(header);
+        toast.appendChild(body);
+        container().appendChild(toast);
+        toast.addEventListener('hidden.bs.toast', function () {
+            toast.remove();
+        });
+        new bootstrap.Toast(toast, {delay: 8000}).show();
+
+        document.querySelectorAll('[data-unread-count]').forEach(function (badge) {
+            badge.textContent = (parseInt(badge.textContent, 10) || 0) + 1;
+        });
+    }
+
+    client.activate();
+})();
@@ -0,0 +1,64 @@
+// Suivi de la génération d'un rapport lancée en arrière-plan
+(function () {
+    const container = document.getElementById('report-progress');
+    if (!container) {
+        return;
+    }
+
+    const statusUrl = container.getAttribute('data-status-url');
+    const text = container.querySelector('.report-progress-text');
+    const download = container.querySelector('.report-progress-download');
+
+    function formatBytes(bytes) {
+        if (bytes < 1024) {
+            return bytes + ' o';
+        }
+        if (bytes < 1024 * 1024) {
+            return (bytes / 1024).toFixed(1) + ' Ko';
+        }
+        return (bytes / (1024 * 1024)).toFixed(1) + ' Mo';
+    }
+
+    function render(status) {
+        if (status.statut === 'TERMINE') {
+            text.textContent = 'Rapport prêt : ' + status.lignesTraitees + ' incidents, '
+                + formatBytes(status.octetsEcrits) + '.';
+            if (status.downloadUrl) {
+                download.style.display = '';
+            }
+            return true;
+        }
+        if (status.statut === 'ECHEC') {
+            text.textContent = 'Échec de la génération : ' + (status.erreur || 'erreur inconnue');
+            return true;
+        }
+        if (status.statut === 'EN_ATTENTE') {
+            text.textContent = 'Rapport en file d\'attente...';
+        } else {
+            const total = status.lignesTotal >= 0 ? ' / ' + status.lignesTotal : '';
+            text.textContent = 'Génération en cours : ' + status.lignesTraitees + total
+                + ' incidents, ' + formatBytes(status.octetsEcrits);
+        }
+        return false;
+    }
+
+    function poll() {
+        fetch(statusUrl, {headers: {'Accept': 'application/json'}})
+            .then(function (response) {
+                if (!response.ok) {
+                    throw new Error(response.status);
+                }
+                return response.json();
+            })
+            .then(function (status) {
+                if (!render(status)) {
+                    setTimeout(poll, 1500);
+                }
+            })
+            .catch(function () {
+                setTimeout(poll, 5000);
+            });
+    }
+
+    poll();
+})();
@@ -0,0 +1,87 @@
+package com.citesignal.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UploadControllerRangeTest {
+
+    private static final long LENGTH = 1000;
+    private static final String ETAG = "\"3e8-18f3a\"";
+    // Date HTTP à la seconde : les millisecondes du fichier sont ignorées
+    private static final long LAST_MODIFIED = 1_715_954_589_000L;
+
+    @Test
+    void closedRange() {
+        assertArrayEquals(new long[]{0, 499}, UploadController.parseRange("bytes=0-499", LENGTH));
+        assertArrayEquals(new long[]{500, 999}, UploadController.parseRange("bytes=500-999", LENGTH));
+    }
+
+    @Test
+    void openAndOversizedRangesStopAtTheLastByte() {
+        assertArrayEquals(new long[]{900, 999}, UploadController.parseRange("bytes=900-", LENGTH));
+        assertArrayEquals(new long[]{900, 999}, UploadController.parseRange("bytes=900-5000", LENGTH));
+    }
+
+    @Test
+    void suffixRange() {
+        assertArrayEquals(new long[]{800, 999}, UploadController.parseRange("bytes=-200", LENGTH));
+        assertArrayEquals(new long[]{0, 999}, UploadController.parseRange("bytes=-5000", LENGTH));
+    }
+
+    @Test
+    void unsatisfiableRanges() {
+        assertNull(UploadController.parseRange("bytes=1000-", LENGTH));
+        assertNull(UploadController.parseRange("bytes=500-400", LENGTH));
+        assertNull(UploadController.parseRange("bytes=-0", LENGTH));
+    }
+
+    @Test
+    void unsupportedOrMalformedRangesServeTheWholeFile() {
+        assertEquals(0, UploadController.parseRange("bytes=0-99,200-299", LENGTH).length);
+        assertEquals(0, UploadController.parseRange("bytes=-", LENGTH).length);
+        assertEquals(0, UploadController.parseRange("items=0-10", LENGTH).length);
+        assertEquals(0, UploadController.parseRange("bytes=99999999999999999999-", LENGTH).length);
+    }
+
+    @Test
+    void rangeAppliesWithoutIfRange() {
+        assertTrue(UploadController.rangeApplies(new MockHttpServletRequest(), ETAG, LAST_MODIFIED));
+    }
+
+    @Test
+    void ifRangeWithEtag() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_RANGE, ETAG);
+        assertTrue(UploadController.rangeApplies(request, ETAG, LAST_MODIFIED));
+
+        MockHttpServletRequest stale = new MockHttpServletRequest();
+        stale.addHeader(HttpHeaders.IF_RANGE, "\"autre\"");
+        assertFalse(UploadController.rangeApplies(stale, ETAG, LAST_MODIFIED));
+    }
+
+    @Test
+    void ifRangeWithDate() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_RANGE, httpDate(LAST_MODIFIED));
+        assertTrue(UploadController.rangeApplies(request, ETAG, LAST_MODIFIED + 450));
+
+        MockHttpServletRequest modified = new MockHttpServletRequest();
+        modified.addHeader(HttpHeaders.IF_RANGE, httpDate(LAST_MODIFIED));
+        assertFalse(UploadController.rangeApplies(modified, ETAG, LAST_MODIFIED + 5_000));
+
+        MockHttpServletRequest invalid = new MockHttpServletRequest();
+        invalid.addHeader(HttpHeaders.IF_RANGE, "pas une date");
+        assertFalse(UploadController.rangeApplies(invalid, ETAG, LAST_MODIFIED));
+    }
+
+    private static String httpDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(millis).atOffset(ZoneOffset.UTC));
+    }
+}
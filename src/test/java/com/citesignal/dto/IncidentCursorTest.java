@@ -0,0 +1,62 @@
+package com.citesignal.dto;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.KeysetScrollPosition;
+import org.springframework.data.domain.ScrollPosition;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncidentCursorTest {
+
+    @Test
+    void encodeThenDecodeRestoresTheKey() {
+        IncidentCursor cursor = new IncidentCursor(LocalDateTime.of(2024, 5, 17, 14, 3, 9, 123_456_000), 4242L);
+
+        String token = cursor.encode();
+
+        assertFalse(token.contains("="));
+        assertFalse(token.contains("/") || token.contains("+"));
+        assertEquals(cursor, IncidentCursor.decode(token));
+    }
+
+    @Test
+    void encodeKeepsWholeSecondsAndMidnight() {
+        IncidentCursor cursor = new IncidentCursor(LocalDateTime.of(2024, 1, 1, 0, 0), 1L);
+
+        assertEquals(cursor, IncidentCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void blankTokenMeansFirstPage() {
+        assertNull(IncidentCursor.decode(null));
+        assertNull(IncidentCursor.decode(""));
+        assertNull(IncidentCursor.decode("   "));
+    }
+
+    @Test
+    void malformedTokenIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> IncidentCursor.decode("pas un curseur!"));
+        assertThrows(IllegalArgumentException.class, () -> IncidentCursor.decode(encodeRaw("2024-01-01T00:00")));
+        assertThrows(IllegalArgumentException.class, () -> IncidentCursor.decode(encodeRaw("hier|12")));
+        assertThrows(IllegalArgumentException.class, () -> IncidentCursor.decode(encodeRaw("2024-01-01T00:00|douze")));
+    }
+
+    @Test
+    void scrollPositionStartsAtTheBeginningWithoutCursor() {
+        ScrollPosition first = IncidentCursor.toScrollPosition(null);
+        assertTrue(first.isInitial());
+
+        KeysetScrollPosition next = (KeysetScrollPosition) IncidentCursor.toScrollPosition(
+                new IncidentCursor(LocalDateTime.of(2024, 5, 17, 14, 3), 7L));
+        assertEquals(LocalDateTime.of(2024, 5, 17, 14, 3), next.getKeys().get("createdAt"));
+        assertEquals(7L, next.getKeys().get("id"));
+    }
+
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
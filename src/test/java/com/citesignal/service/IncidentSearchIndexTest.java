@@ -0,0 +1,165 @@
+package com.citesignal.service;
+
+import com.citesignal.model.CategorieIncident;
+import com.citesignal.model.Incident;
+import com.citesignal.model.StatutIncident;
+import com.citesignal.repository.IncidentRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncidentSearchIndexTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2024, 3, 1, 8, 0);
+
+    private IncidentSearchIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new IncidentSearchIndex();
+        ReflectionTestUtils.setField(index, "incidentRepository", Mockito.mock(IncidentRepository.class));
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "batchSize", 100);
+        // Reconstruction synchrone sur une base vide
+        ReflectionTestUtils.invokeMethod(index, "rebuild");
+        assertTrue(index.isReady());
+    }
+
+    @Test
+    void stemKeepsAMinimumLength() {
+        assertEquals("station", IncidentSearchIndex.stem("station"));
+        assertEquals("nation", IncidentSearchIndex.stem("nation"));
+        assertEquals("edition", IncidentSearchIndex.stem("edition"));
+        assertEquals("stationn", IncidentSearchIndex.stem("stationnement"));
+        assertEquals("cheval", IncidentSearchIndex.stem("chevaux"));
+        assertEquals("lampadair", IncidentSearchIndex.stem("lampadaires"));
+        assertEquals("taux", IncidentSearchIndex.stem("taux"));
+        assertEquals("rue", IncidentSearchIndex.stem("rue"));
+    }
+
+    @Test
+    void analyzeFoldsAccentsAndDropsStopWords() {
+        assertEquals(List.of("lampadair", "cass"), IncidentSearchIndex.analyze("Les lampadaires cassés"));
+        assertEquals(List.of("eclairag", "publiqu"), IncidentSearchIndex.analyze("Éclairage publique"));
+        assertTrue(IncidentSearchIndex.analyze("de la et").isEmpty());
+        assertTrue(IncidentSearchIndex.analyze(null).isEmpty());
+    }
+
+    @Test
+    void prefixMatchDoesNotWidenShortStems() {
+        index.index(incident(1, "Station de métro inondée", T0));
+        index.index(incident(2, "Stade municipal", T0.plusMinutes(1)));
+        index.index(incident(3, "Panneau stop arraché", T0.plusMinutes(2)));
+
+        assertEquals(List.of(1L), ids(search("station", true, null, null, 0, 10)));
+        assertEquals(List.of(1L), ids(search("stat", true, null, null, 0, 10)));
+        assertEquals(List.of(1L, 2L, 3L), ids(search("st", true, null, null, 0, 10)));
+        // Tous les termes doivent correspondre
+        assertEquals(List.of(1L), ids(search("metro station", true, null, null, 0, 10)));
+        assertTrue(ids(search("station stade", true, null, null, 0, 10)).isEmpty());
+    }
+
+    @Test
+    void outOfOrderPutsKeepCreationOrder() {
+        // Validations concurrentes arrivées dans le désordre
+        long[] order = {1, 2, 5, 3, 7, 4, 6};
+        for (long id : order) {
+            index.index(incident(id, "Nid de poule", T0.plusMinutes(id)));
+        }
+        // Réindexation d'un incident existant : il garde sa place
+        index.index(incident(3, "Nid de poule profond", T0.plusMinutes(3)));
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L, 6L, 7L), ids(search("poule", true, null, null, 0, 100)));
+        assertEquals(List.of(7L, 6L, 5L, 4L, 3L, 2L, 1L), ids(search("poule", false, null, null, 0, 100)));
+        assertEquals(List.of(3L), ids(search("profond", true, null, null, 0, 100)));
+
+        IncidentSearchIndex.SearchPage depuis = index.search("poule", null, null, null, null,
+                T0.plusMinutes(4), T0.plusMinutes(6), true, null, null, 0, 100, true);
+        assertEquals(List.of(4L, 5L, 6L), depuis.ids());
+        assertEquals(3, depuis.total());
+    }
+
+    @Test
+    void seekPaginationVisitsEveryMatchOnce() {
+        // Insertion en ordre inverse, avec des dates égales départagées par l'identifiant
+        for (long id = 60; id >= 1; id--) {
+            String titre = id % 3 == 0 ? "Voirie dégradée trottoir" : "Voirie dégradée";
+            index.index(incident(id, titre, T0.plusMinutes(id / 2)));
+        }
+        List<Long> expected = LongStream.rangeClosed(1, 60).filter(id -> id % 3 == 0).boxed()
+                .collect(Collectors.toList());
+
+        for (boolean ascending : new boolean[]{true, false}) {
+            List<Long> seen = new ArrayList<>();
+            LocalDateTime apres = null;
+            Long apresId = null;
+            IncidentSearchIndex.SearchPage page;
+            do {
+                page = search("voirie trottoir", ascending, apres, apresId, 0, 7);
+                seen.addAll(page.ids());
+                if (!page.ids().isEmpty()) {
+                    apresId = page.ids().get(page.ids().size() - 1);
+                    apres = T0.plusMinutes(apresId / 2);
+                }
+            } while (page.hasNext());
+
+            List<Long> wanted = new ArrayList<>(expected);
+            if (!ascending) {
+                wanted.sort((a, b) -> Long.compare(b, a));
+            }
+            assertEquals(wanted, seen);
+        }
+
+        IncidentSearchIndex.SearchPage offset = index.search("voirie", StatutIncident.SIGNALE, null, null, null,
+                null, null, true, null, null, 50, 20, true);
+        assertEquals(60, offset.total());
+        assertEquals(LongStream.rangeClosed(51, 60).boxed().collect(Collectors.toList()), offset.ids());
+        assertFalse(offset.hasNext());
+    }
+
+    @Test
+    void structuredFiltersApplyToMatches() {
+        Incident eclairage = incident(1, "Lampadaire éteint", T0);
+        eclairage.setCategorie(CategorieIncident.ECLAIRAGE);
+        index.index(eclairage);
+        Incident proprete = incident(2, "Lampadaire tagué", T0.plusMinutes(1));
+        proprete.setCategorie(CategorieIncident.PROPRETE);
+        proprete.setStatut(StatutIncident.RESOLU);
+        index.index(proprete);
+
+        assertEquals(List.of(2L), index.search("lampadaire", null, CategorieIncident.PROPRETE, null, null,
+                null, null, true, null, null, 0, 10, false).ids());
+        assertEquals(List.of(1L), index.search("lampadaire", StatutIncident.SIGNALE, null, null, null,
+                null, null, true, null, null, 0, 10, false).ids());
+    }
+
+    private IncidentSearchIndex.SearchPage search(String recherche, boolean ascending, LocalDateTime apres,
+                                                  Long apresId, long offset, int limit) {
+        return index.search(recherche, null, null, null, null, null, null, ascending, apres, apresId,
+                offset, limit, false);
+    }
+
+    private static List<Long> ids(IncidentSearchIndex.SearchPage page) {
+        return page.ids();
+    }
+
+    private static Incident incident(long id, String titre, LocalDateTime createdAt) {
+        Incident incident = new Incident();
+        incident.setId(id);
+        incident.setTitre(titre);
+        incident.setDescription("");
+        incident.setAdresse("");
+        incident.setCategorie(CategorieIncident.INFRASTRUCTURE);
+        incident.setCreatedAt(createdAt);
+        return incident;
+    }
+}